@@ -0,0 +1,79 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import com.serena.rlc.provider.domain.ProviderInfo;
+import com.serena.rlc.provider.hpalm.ALMRequestProvider;
+import com.serena.rlc.provider.hpalm.DefectMapper;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of found defects to provider requests, as done by findRequests for every result page
+ *
+ * @author klee
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"10", "300", "5000"})
+    public int defects;
+
+    private ALMRequestProvider provider;
+    private DefectMapper mapper;
+    private List<Defect> requests;
+
+    @Setup
+    public void setup() {
+        provider = new ALMRequestProvider();
+        provider.setHpalmUrl("http://localhost:8080");
+        provider.setHpalmDomain("DEFAULT");
+        mapper = new DefectMapper("http://localhost:8080", "DEFAULT");
+        requests = Defect.parse(Fixtures.defects(defects));
+    }
+
+    @Benchmark
+    public List<ProviderInfo> mapRequests() {
+        List<ProviderInfo> list = new ArrayList<>(requests.size());
+        for (Defect request : requests) {
+            list.add(provider.createRequestInfo(Fixtures.PROJECT, request));
+        }
+        return list;
+    }
+
+    /**
+     * Mapping of a whole result set, in parallel from {@link DefectMapper#PARALLEL_THRESHOLD} defects
+     */
+    @Benchmark
+    public ProviderInfo[] mapAll() {
+        return mapper.mapAll(Fixtures.PROJECT, null, requests);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+import com.serena.rlc.provider.hpalm.domain.FieldBinders;
+import com.serena.rlc.provider.hpalm.domain.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of HP ALM defect and project payloads
+ *
+ * @author klee
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"10", "300", "5000"})
+    public int defects;
+
+    private static final int CUSTOM_FIELDS = 100;
+    private static final int MAPPED_CUSTOM_FIELDS = 5;
+
+    private String defectsJson;
+    private String customFieldsJson;
+    private FieldBinders<Defect> customFieldBinders;
+    private String defectJson;
+    private String projectsJson;
+
+    @Setup
+    public void setup() {
+        defectsJson = Fixtures.defects(defects);
+        customFieldsJson = Fixtures.defects(1, defects, defects, CUSTOM_FIELDS);
+        List<String> extraFields = new ArrayList<>();
+        for (int i = 1; i <= MAPPED_CUSTOM_FIELDS; i++) {
+            extraFields.add(Fixtures.customField(i));
+        }
+        customFieldBinders = Defect.getBinders(extraFields);
+        defectJson = Fixtures.defect(defects);
+        projectsJson = Fixtures.projects(Math.min(defects, 300));
+    }
+
+    @Benchmark
+    public List<Defect> parseDefects() {
+        return Defect.parse(defectsJson);
+    }
+
+    @Benchmark
+    public DefectPage parseDefectPageStream() throws IOException {
+        return Defect.parsePage(new StringReader(defectsJson));
+    }
+
+    /**
+     * Defects with 100 custom fields, of which only the mapped fields are bound
+     */
+    @Benchmark
+    public DefectPage parseCustomFieldsSkipped() throws IOException {
+        return Defect.parsePage(new StringReader(customFieldsJson));
+    }
+
+    /**
+     * Defects with 100 custom fields, of which 5 are bound as extra fields
+     */
+    @Benchmark
+    public DefectPage parseCustomFieldsBound() throws IOException {
+        return Defect.parsePage(new StringReader(customFieldsJson), customFieldBinders);
+    }
+
+    @Benchmark
+    public Defect parseSingleDefect() {
+        return Defect.parseSingle(defectJson);
+    }
+
+    @Benchmark
+    public List<Project> parseProjects() {
+        return Project.parse(projectsJson);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import com.serena.rlc.provider.hpalm.client.ALMQuery;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the HP ALM defect query parameters, as done for every defect search
+ *
+ * @author klee
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    private final List<String> statusFilters = Arrays.asList("New", "Open", "Reopen", "Fixed");
+    private final String titleFilter = "login page";
+
+    private static final String FIELDS = String.join(",", Defect.MAPPED_FIELDS);
+
+    @Benchmark
+    public String noFilters() {
+        return query(null, null);
+    }
+
+    @Benchmark
+    public String statusFilters() {
+        return query(statusFilters, null);
+    }
+
+    @Benchmark
+    public String statusAndTitleFilters() {
+        return query(statusFilters, titleFilter);
+    }
+
+    private static String query(List<String> statusFilters, String titleFilter) {
+        return new ALMQuery()
+                .whereContains("name", titleFilter)
+                .whereAny("status", statusFilters)
+                .orderBy("id", true)
+                .fields(FIELDS)
+                .page(0, 50)
+                .toParameters();
+    }
+
+}
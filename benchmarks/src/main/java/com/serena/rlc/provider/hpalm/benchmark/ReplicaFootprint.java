@@ -0,0 +1,76 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import com.serena.rlc.provider.hpalm.cache.DefectReplica;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Measures the heap retained by a defect replica loaded from HP ALM JSON pages, e.g.
+ * <pre>
+ *   java -cp target/benchmarks.jar com.serena.rlc.provider.hpalm.benchmark.ReplicaFootprint 50000
+ * </pre>
+ *
+ * @author klee
+ */
+
+public class ReplicaFootprint {
+
+    public static void main(String[] args) throws Exception {
+        final int defects = (args.length > 0 ? Integer.parseInt(args[0]) : 50000);
+
+        long before = usedHeap();
+        long started = System.nanoTime();
+        DefectReplica replica = DefectReplica.getReplica("footprint", new DefectReplica.DefectLoader() {
+            @Override
+            public DefectPage load(String modifiedSince, int startIndex, int pageSize) {
+                int count = Math.max(0, Math.min(pageSize, defects - startIndex));
+                try {
+                    return Defect.parsePage(new StringReader(Fixtures.defects(startIndex + 1, count, defects)));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, Integer.MAX_VALUE, true);
+        replica.sync();
+        long loaded = System.nanoTime() - started;
+        long after = usedHeap();
+
+        // the descriptions and dates are decoded on access, make sure that still works
+        long length = 0;
+        for (Defect defect : replica.getDefects()) {
+            length += defect.getDescription().length() + defect.getLastUpdated().length();
+        }
+
+        System.out.printf("Defects:          %d%n", replica.size());
+        System.out.printf("Load time:        %.0f ms%n", loaded / 1000000.0);
+        System.out.printf("Retained heap:    %.1f MB%n", (after - before) / 1024.0 / 1024.0);
+        System.out.printf("Bytes per defect: %d%n", (after - before) / Math.max(1, replica.size()));
+        System.out.printf("Text length:      %d%n", length);
+        DefectReplica.remove("footprint");
+        System.exit(0);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+}
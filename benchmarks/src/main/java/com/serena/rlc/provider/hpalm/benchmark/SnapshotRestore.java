@@ -0,0 +1,90 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import com.serena.rlc.provider.hpalm.cache.DefectReplica;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+/**
+ * Compares loading a defect replica from HP ALM JSON pages with restoring it from its
+ * snapshot, as after a restart, e.g.
+ * <pre>
+ *   java -cp target/benchmarks.jar com.serena.rlc.provider.hpalm.benchmark.SnapshotRestore 50000
+ * </pre>
+ *
+ * @author klee
+ */
+
+public class SnapshotRestore {
+
+    private static final String KEY = "snapshot";
+
+    public static void main(String[] args) throws Exception {
+        final int defects = (args.length > 0 ? Integer.parseInt(args[0]) : 50000);
+        File directory = Files.createTempDirectory("hpalm-snapshot").toFile();
+
+        DefectReplica.DefectLoader loader = new DefectReplica.DefectLoader() {
+            @Override
+            public DefectPage load(String modifiedSince, int startIndex, int pageSize) {
+                int count = (modifiedSince != null ? 0 : Math.max(0, Math.min(pageSize, defects - startIndex)));
+                try {
+                    return Defect.parsePage(new StringReader(Fixtures.defects(startIndex + 1, count, (modifiedSince != null ? 0 : defects))));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        long started = System.nanoTime();
+        DefectReplica replica = DefectReplica.getReplica(KEY, loader, Integer.MAX_VALUE, true, directory);
+        replica.sync();
+        // the scheduled synchronization may have got there first
+        while (!replica.isInitialized()) {
+            Thread.sleep(10);
+        }
+        long loaded = System.nanoTime() - started;
+        DefectReplica.remove(KEY);
+
+        File[] files = directory.listFiles();
+        while (files == null || files.length == 0 || !files[0].getName().endsWith(".snapshot")) {
+            Thread.sleep(10);
+            files = directory.listFiles();
+        }
+        long size = 0;
+        for (File file : (files == null ? new File[0] : files)) {
+            size += file.length();
+        }
+
+        // a new replica of the same key is restored from the snapshot
+        started = System.nanoTime();
+        replica = DefectReplica.getReplica(KEY, loader, Integer.MAX_VALUE, true, directory);
+        long restored = System.nanoTime() - started;
+
+        System.out.printf("Defects:          %d%n", replica.size());
+        System.out.printf("Initialized:      %s%n", replica.isInitialized());
+        System.out.printf("Load time:        %.0f ms%n", loaded / 1000000.0);
+        System.out.printf("Restore time:     %.0f ms%n", restored / 1000000.0);
+        System.out.printf("Snapshot size:    %.1f MB%n", size / 1024.0 / 1024.0);
+        System.out.printf("Bytes per defect: %d%n", size / Math.max(1, replica.size()));
+        DefectReplica.remove(KEY);
+        for (File file : (files == null ? new File[0] : files)) {
+            file.delete();
+        }
+        directory.delete();
+        System.exit(0);
+    }
+
+}
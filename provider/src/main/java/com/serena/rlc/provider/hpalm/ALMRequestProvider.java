@@ -0,0 +1,1007 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ * @author Kevin Lee
+ */
+package com.serena.rlc.provider.hpalm;
+
+import com.serena.rlc.provider.BaseRequestProvider;
+import com.serena.rlc.provider.annotations.*;
+import com.serena.rlc.provider.domain.*;
+import com.serena.rlc.provider.exceptions.ProviderException;
+import com.serena.rlc.provider.hpalm.cache.DefectCache;
+import com.serena.rlc.provider.hpalm.cache.DefectReplica;
+import com.serena.rlc.provider.hpalm.cache.ProjectCache;
+import com.serena.rlc.provider.hpalm.client.ALMCircuitBreaker;
+import com.serena.rlc.provider.hpalm.client.ALMClient;
+import com.serena.rlc.provider.hpalm.client.ALMConcurrencyLimiter;
+import com.serena.rlc.provider.hpalm.client.ALMConnectionManager;
+import com.serena.rlc.provider.hpalm.client.ALMExecutor;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+import com.serena.rlc.provider.hpalm.domain.ALMObject;
+import com.serena.rlc.provider.hpalm.domain.Project;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import com.serena.rlc.provider.hpalm.metrics.ALMMetrics;
+import com.serena.rlc.provider.hpalm.metrics.OperationMetrics;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+public class ALMRequestProvider extends BaseRequestProvider {
+
+    final static Logger logger = LoggerFactory.getLogger(ALMRequestProvider.class);
+    final static String PROJECT = "project";
+    final static String STATUS_FILTERS = "statusFilters";
+    final static String TITLE_FILTER = "titleFilter";
+    final static String ALL_PROJECTS = "*";
+
+    private final static Set<String> invalidIntProperties = ConcurrentHashMap.newKeySet();
+
+    private ALMClient almClient;
+    private DefectMapper defectMapper;
+    private Integer resultLimit;
+
+
+    //================================================================================
+    // Configuration Properties
+    // -------------------------------------------------------------------------------
+    // The configuration properties are marked with the @ConfigProperty annotaion
+    // and will be displayed in the provider administration page when creating a 
+    // configuration of this plugin for use.
+    //================================================================================
+
+
+
+    @ConfigProperty(name = "request_provider_name", displayName = "Request Provider Name",
+            description = "provider name",
+            defaultValue = "HP ALM Provider",
+            dataType = DataType.TEXT)
+    private String providerName;
+
+    @ConfigProperty(name = "request_provider_description", displayName = "Request Provider Description",
+            description = "provider description",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String providerDescription;
+
+    @ConfigProperty(name = "hpalm_url", displayName = "HP ALM URL",
+            description = "HP ALM Server URL.",
+            defaultValue = "http://<servername>:8080/qcbin/",
+            dataType = DataType.TEXT)
+    private String hpalmUrl;
+
+    @ConfigProperty(name = "hpalm_serviceuser", displayName = "User Name",
+            description = "HP ALM service username.",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String serviceUser;
+
+    @ConfigProperty(name = "hpalm_servicepassword", displayName = "Password",
+            description = "HP ALM service password.",
+            defaultValue = "",
+            dataType = DataType.PASSWORD)
+    private String servicePassword;
+
+    @ConfigProperty(name = "useXsrf", displayName = "Use XSRF-TOKEN cookie",
+            description = "Use XSRF-TOKEN cookie, required for HP ALM 12.0 onwards",
+            defaultValue = "true",
+            dataType = DataType.TEXT)
+    private String useXsrf;
+
+    @ConfigProperty(name = "hpalm_domain", displayName = "HP ALM Domain",
+            description = "The HP ALM domain to query.",
+            defaultValue = "DEFAULT",
+            dataType = DataType.TEXT)
+    private String hpalmDomain;
+
+    @ConfigProperty(name = "request_status_filters", displayName = "Status Filters",
+            description = "status filters separated by commas",
+            defaultValue = "Closed,Fixed,New,Open,Rejected,Reopen",
+            dataType = DataType.TEXT)
+    private String statusFilters;
+
+    @ConfigProperty(name = "request_result_limit", displayName = "Result Limit",
+            description = "Maximum number of results returned per page for find requests action",
+            defaultValue = "300",
+            dataType = DataType.TEXT)
+    private String requestResultLimit;
+
+    @ConfigProperty(name = "hpalm_max_connections_per_route", displayName = "Max Connections Per Server",
+            description = "Maximum number of pooled HTTP connections to the HP ALM server",
+            defaultValue = "20",
+            dataType = DataType.TEXT)
+    private String maxConnectionsPerRoute;
+
+    @ConfigProperty(name = "hpalm_max_connections_total", displayName = "Max Connections Total",
+            description = "Maximum number of pooled HTTP connections across all HP ALM servers",
+            defaultValue = "100",
+            dataType = DataType.TEXT)
+    private String maxConnectionsTotal;
+
+    @ConfigProperty(name = "hpalm_idle_connection_timeout", displayName = "Idle Connection Timeout",
+            description = "Number of seconds after which idle pooled connections are closed",
+            defaultValue = "60",
+            dataType = DataType.TEXT)
+    private String idleConnectionTimeout;
+
+    @ConfigProperty(name = "hpalm_keepalive_timeout", displayName = "Keep-Alive Timeout",
+            description = "Number of seconds to keep a connection alive if the server does not specify one",
+            defaultValue = "30",
+            dataType = DataType.TEXT)
+    private String keepAliveTimeout;
+
+    @ConfigProperty(name = "hpalm_extra_fields", displayName = "Additional Defect Fields",
+            description = "Additional HP ALM defect fields to retrieve, separated by commas",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String extraFields;
+
+    @ConfigProperty(name = "hpalm_defect_cache_ttl", displayName = "Defect Cache Time To Live",
+            description = "Number of seconds a cached defect is used before it is revalidated, 0 disables the cache",
+            defaultValue = "300",
+            dataType = DataType.TEXT)
+    private String defectCacheTtl;
+
+    @ConfigProperty(name = "hpalm_defect_cache_size", displayName = "Defect Cache Size",
+            description = "Maximum number of defects held in the cache",
+            defaultValue = "5000",
+            dataType = DataType.TEXT)
+    private String defectCacheSize;
+
+    @ConfigProperty(name = "hpalm_project_refresh_interval", displayName = "Project List Refresh Interval",
+            description = "Number of seconds between background refreshes of the cached project list, 0 disables the cache",
+            defaultValue = "600",
+            dataType = DataType.TEXT)
+    private String projectRefreshInterval;
+
+    @ConfigProperty(name = "hpalm_replica_sync_interval", displayName = "Defect Replica Sync Interval",
+            description = "Number of seconds between incremental synchronizations of the local defect replica, 0 disables the replica",
+            defaultValue = "0",
+            dataType = DataType.TEXT)
+    private String replicaSyncInterval;
+
+    @ConfigProperty(name = "hpalm_replica_name_index", displayName = "Index Defect Names",
+            description = "Maintain a local index of defect names in the defect replica to answer name filter searches",
+            defaultValue = "true",
+            dataType = DataType.TEXT)
+    private String replicaNameIndex;
+
+    @ConfigProperty(name = "hpalm_async_threads", displayName = "Request Threads",
+            description = "Number of threads used to run concurrent HP ALM requests",
+            defaultValue = "16",
+            dataType = DataType.TEXT)
+    private String asyncThreads;
+
+    @ConfigProperty(name = "hpalm_search_concurrency", displayName = "All Projects Search Concurrency",
+            description = "Maximum number of projects queried in parallel when searching all projects",
+            defaultValue = "4",
+            dataType = DataType.TEXT)
+    private String searchConcurrency;
+
+    @ConfigProperty(name = "hpalm_connect_timeout", displayName = "Connect Timeout",
+            description = "Number of seconds to wait for a connection to HP ALM",
+            defaultValue = "10",
+            dataType = DataType.TEXT)
+    private String connectTimeout;
+
+    @ConfigProperty(name = "hpalm_read_timeout", displayName = "Read Timeout",
+            description = "Number of seconds to wait for a response from HP ALM",
+            defaultValue = "60",
+            dataType = DataType.TEXT)
+    private String readTimeout;
+
+    @ConfigProperty(name = "hpalm_max_retries", displayName = "Maximum Retries",
+            description = "Number of times a failed HP ALM read request is retried",
+            defaultValue = "2",
+            dataType = DataType.TEXT)
+    private String maxRetries;
+
+    @ConfigProperty(name = "hpalm_retry_backoff", displayName = "Retry Backoff",
+            description = "Number of milliseconds to wait before the first retry, doubled for each further retry",
+            defaultValue = "250",
+            dataType = DataType.TEXT)
+    private String retryBackoff;
+
+    @ConfigProperty(name = "hpalm_circuit_breaker_threshold", displayName = "Circuit Breaker Threshold",
+            description = "Number of consecutive failures after which requests to HP ALM fail fast, 0 to disable",
+            defaultValue = "5",
+            dataType = DataType.TEXT)
+    private String circuitBreakerThreshold;
+
+    @ConfigProperty(name = "hpalm_circuit_breaker_open_time", displayName = "Circuit Breaker Open Time",
+            description = "Number of seconds requests fail fast before HP ALM is tried again",
+            defaultValue = "30",
+            dataType = DataType.TEXT)
+    private String circuitBreakerOpenTime;
+
+    @ConfigProperty(name = "hpalm_max_concurrent_requests", displayName = "Maximum Concurrent Requests",
+            description = "Highest number of requests in flight to HP ALM, at most Max Connections Per Server, the actual limit adapts to the server response times, 0 for no limit",
+            defaultValue = "20",
+            dataType = DataType.TEXT)
+    private String maxConcurrentRequests;
+
+    @ConfigProperty(name = "hpalm_max_request_wait", displayName = "Maximum Request Wait",
+            description = "Number of seconds a request waits to be sent when too many requests to HP ALM are in flight",
+            defaultValue = "10",
+            dataType = DataType.TEXT)
+    private String maxRequestWait;
+
+    @ConfigProperty(name = "hpalm_compression", displayName = "Compression",
+            description = "Whether to request gzip or deflate compressed responses from HP ALM, recommended over slow network links",
+            defaultValue = "true",
+            dataType = DataType.TEXT)
+    private String compression;
+
+    @ConfigProperty(name = "hpalm_snapshot_directory", displayName = "Snapshot Directory",
+            description = "Directory in which the defect replicas and project lists are saved, so that they are served straight away after a restart, empty disables snapshots",
+            defaultValue = "",
+            dataType = DataType.TEXT)
+    private String snapshotDirectory;
+
+    @Override
+    public String getProviderName() {
+        return this.providerName;
+    }
+
+    @Autowired(required = false)
+    @Override
+    public void setProviderName(String providerName) {
+        if (StringUtils.isNotEmpty(providerName)) {
+            providerName = providerName.trim();
+        }
+
+        this.providerName = providerName;
+    }
+
+    @Override
+    public String getProviderDescription() {
+        return this.providerDescription;
+    }
+
+    @Autowired(required = false)
+    @Override
+    public void setProviderDescription(String providerDescription) {
+        if (StringUtils.isNotEmpty(providerDescription)) {
+            providerDescription = providerDescription.trim();
+        }
+
+        this.providerDescription = providerDescription;
+    }
+
+    public String getHpalmUrl() {
+        return hpalmUrl;
+    }
+
+    @Autowired(required = false)
+    public void setHpalmUrl(String hpalmUrl) {
+        if (StringUtils.isNotEmpty(hpalmUrl)) {
+            this.hpalmUrl = hpalmUrl.replaceAll("/qcbin", "");
+            this.hpalmUrl = hpalmUrl.replaceAll("^\\s+", "");
+        } else {
+            this.hpalmUrl = "http://localhost:8080";
+        }
+        this.defectMapper = null;
+    }
+
+    public String getServiceUser() {
+        return serviceUser;
+    }
+
+    @Autowired(required = false)
+    public void setServiceUser(String serviceUser) {
+        if (!StringUtils.isEmpty(serviceUser)) {
+            this.serviceUser = serviceUser.replaceAll("^\\s+", "");
+        }
+    }
+
+    public String getServicePassword() {
+        return servicePassword;
+    }
+
+    @Autowired(required = false)
+    public void setServicePassword(String servicePassword) {
+        if (!StringUtils.isEmpty(servicePassword)) {
+            this.servicePassword = servicePassword.replaceAll("^\\s+", "");
+        }
+    }
+
+    public String useXsrf() {
+        return useXsrf;
+    }
+
+    @Autowired(required = false)
+    public void setUseXsrf(String useXsrf) {
+        if (StringUtils.isNotEmpty(useXsrf))
+            this.useXsrf = useXsrf.replaceAll("^\\s+", "");
+    }
+
+    public String getHpalmDomain() {
+        return hpalmDomain;
+    }
+
+    @Autowired(required = false)
+    public void setHpalmDomain(String hpalmDomain) {
+        if (!StringUtils.isEmpty(hpalmDomain)) {
+            hpalmDomain = hpalmDomain.trim();
+        }
+
+        this.hpalmDomain = hpalmDomain;
+        this.defectMapper = null;
+    }
+
+    public String getStatusFilters() {
+        return statusFilters;
+    }
+
+    @Autowired(required = false)
+    public void setStatusFilters(String statusFilters) {
+        if (!StringUtils.isEmpty(statusFilters)) {
+            statusFilters = statusFilters.trim();
+        }
+
+        this.statusFilters = statusFilters;
+    }
+
+    public String getRequestResultLimit() {
+        return requestResultLimit;
+    }
+
+    @Autowired(required = false)
+    public void setRequestResultLimit(String requestResultLimit) {
+        this.requestResultLimit = requestResultLimit;
+    }
+
+    public String getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    @Autowired(required = false)
+    public void setMaxConnectionsPerRoute(String maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public String getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    @Autowired(required = false)
+    public void setMaxConnectionsTotal(String maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public String getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setIdleConnectionTimeout(String idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    public String getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setKeepAliveTimeout(String keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public String getExtraFields() {
+        return extraFields;
+    }
+
+    @Autowired(required = false)
+    public void setExtraFields(String extraFields) {
+        if (!StringUtils.isEmpty(extraFields)) {
+            extraFields = extraFields.trim();
+        }
+
+        this.extraFields = extraFields;
+    }
+
+    public String getDefectCacheTtl() {
+        return defectCacheTtl;
+    }
+
+    @Autowired(required = false)
+    public void setDefectCacheTtl(String defectCacheTtl) {
+        this.defectCacheTtl = defectCacheTtl;
+    }
+
+    public String getDefectCacheSize() {
+        return defectCacheSize;
+    }
+
+    @Autowired(required = false)
+    public void setDefectCacheSize(String defectCacheSize) {
+        this.defectCacheSize = defectCacheSize;
+    }
+
+    public String getProjectRefreshInterval() {
+        return projectRefreshInterval;
+    }
+
+    @Autowired(required = false)
+    public void setProjectRefreshInterval(String projectRefreshInterval) {
+        this.projectRefreshInterval = projectRefreshInterval;
+    }
+
+    public String getReplicaSyncInterval() {
+        return replicaSyncInterval;
+    }
+
+    @Autowired(required = false)
+    public void setReplicaSyncInterval(String replicaSyncInterval) {
+        this.replicaSyncInterval = replicaSyncInterval;
+    }
+
+    public String getReplicaNameIndex() {
+        return replicaNameIndex;
+    }
+
+    @Autowired(required = false)
+    public void setReplicaNameIndex(String replicaNameIndex) {
+        if (StringUtils.isNotEmpty(replicaNameIndex))
+            this.replicaNameIndex = replicaNameIndex.trim();
+    }
+
+    public String getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    @Autowired(required = false)
+    public void setAsyncThreads(String asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    public String getSearchConcurrency() {
+        return searchConcurrency;
+    }
+
+    @Autowired(required = false)
+    public void setSearchConcurrency(String searchConcurrency) {
+        this.searchConcurrency = searchConcurrency;
+    }
+
+    public String getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setConnectTimeout(String connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public String getReadTimeout() {
+        return readTimeout;
+    }
+
+    @Autowired(required = false)
+    public void setReadTimeout(String readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public String getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Autowired(required = false)
+    public void setMaxRetries(String maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public String getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    @Autowired(required = false)
+    public void setRetryBackoff(String retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public String getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    @Autowired(required = false)
+    public void setCircuitBreakerThreshold(String circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public String getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    @Autowired(required = false)
+    public void setCircuitBreakerOpenTime(String circuitBreakerOpenTime) {
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+    }
+
+    public String getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    @Autowired(required = false)
+    public void setMaxConcurrentRequests(String maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public String getMaxRequestWait() {
+        return maxRequestWait;
+    }
+
+    @Autowired(required = false)
+    public void setMaxRequestWait(String maxRequestWait) {
+        this.maxRequestWait = maxRequestWait;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    @Autowired(required = false)
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+
+    //================================================================================
+    // IRequestProvider Overrides
+    //================================================================================
+
+    @Override
+    @Service(name = FIND_REQUESTS, displayName = "Find Defects", description = "Find HP ALM Defects.")
+    @Params(params = {
+            @Param(fieldName = PROJECT, displayName = "Project", description = "HP ALM project name", required = true, dataType = DataType.SELECT),
+            @Param(fieldName = STATUS_FILTERS, displayName = "Status Filters", description = "JIRA Status filters.", dataType = DataType.MULTI_SELECT, required = false),
+            @Param(fieldName = TITLE_FILTER, displayName = "Name Filter", description = "Defect Name filter."),})
+    public ProviderInfoResult findRequests(List<Field> properties, Long startIndex, Long resultCount) throws ProviderException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("provider.findRequests");
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            ProviderInfoResult result = searchRequests(properties, startIndex, resultCount);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(started, success);
+        }
+    }
+
+    private ProviderInfoResult searchRequests(List<Field> properties, Long startIndex, Long resultCount) throws ProviderException {
+        Field field = Field.getFieldByName(properties, PROJECT);
+        if (field == null) {
+            throw new ProviderException("Missing required property: " + PROJECT);
+        }
+
+        String projectId = field.getValue();
+        logger.debug("Filtering on project: " + projectId);
+
+        String titleFilter = null;
+        field = Field.getFieldByName(properties, TITLE_FILTER);
+        if (field != null) {
+            titleFilter = field.getValue();
+        }
+
+        List<String> requestStatusFilters = null;
+        List<Field> fields = Field.getFieldsByName(properties, STATUS_FILTERS);
+        if (fields != null && fields.size() > 0) {
+            requestStatusFilters = new ArrayList<>();
+            for (Field fieldFilter : fields) {
+                requestStatusFilters.add(fieldFilter.getValue());
+            }
+        }
+
+        int start = (startIndex == null || startIndex < 0 ? 0 : startIndex.intValue());
+        int pageSize = getResultLimit();
+        if (resultCount != null && resultCount > 0 && resultCount < pageSize) {
+            pageSize = resultCount.intValue();
+        }
+
+        ProviderInfo[] list = new ProviderInfo[0];
+        int total = 0;
+
+        try {
+            List<Defect> requests;
+            List<String> requestProjects = null;
+            if (ALL_PROJECTS.equals(projectId)) {
+                CrossProjectSearch.Result result = searchAllProjects(requestStatusFilters, titleFilter, start, pageSize);
+                requests = result.defects;
+                requestProjects = result.projectIds;
+                total = result.total;
+                if (!result.failedProjectIds.isEmpty()) {
+                    // the results are returned without them rather than failing the whole search
+                    logger.warn("Search of all HP ALM projects is incomplete, unable to search projects: " + result.failedProjectIds);
+                    ALMMetrics.getInstance().recordPartialSearch();
+                }
+            } else {
+                DefectPage page;
+                DefectReplica replica = getDefectReplica(projectId);
+                if (replica != null && replica.isInitialized()) {
+                    logger.debug("Querying HP ALM defect replica of project: " + projectId);
+                    page = replica.query(requestStatusFilters, titleFilter, start, pageSize);
+                    ALMMetrics.getInstance().recordReplicaHit();
+                } else {
+                    setALMClientConnectionDetails(ALMConcurrencyLimiter.Priority.BULK);
+                    page = getALMClient().getDefects(projectId, requestStatusFilters, titleFilter, start, pageSize);
+                }
+                requests = page.getDefects();
+                total = page.getTotalResults();
+            }
+            if (requests != null) {
+                long mapStarted = System.nanoTime();
+                list = getDefectMapper().mapAll(projectId, requestProjects, requests);
+                ALMMetrics.getInstance().getOperation("provider.mapRequests").record(mapStarted, true);
+            }
+        } catch (ALMClientException e) {
+            logger.debug(e.getLocalizedMessage());
+            throw new ProviderException(e.getLocalizedMessage());
+        }
+
+        return new ProviderInfoResult(start, total, list);
+    }
+
+
+
+    @Override
+    @Service(name = GET_REQUEST, displayName = "Get Request", description = "Get HP ALM request information.")
+    @Params(params = {
+            @Param(fieldName = REQUEST_ID, displayName = "Defect Id", description = "HP ALM Defect identifier", required = true, deployUnit = false, dataType = DataType.SELECT)
+    })
+    public ProviderInfo getRequest(Field property) throws ProviderException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("provider.getRequest");
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            ProviderInfo result = loadRequest(property);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(started, success);
+        }
+    }
+
+    private ProviderInfo loadRequest(Field property) throws ProviderException {
+        if (StringUtils.isEmpty(property.getValue())) {
+            throw new ProviderException("Missing required field: " + REQUEST_ID);
+        }
+
+        try {
+            String project[] = property.getValue().split(":");
+            logger.debug("Request has project=" + project[0] + " and id=" + project[1]);
+            Defect request = null;
+            DefectReplica replica = getDefectReplica(project[0]);
+            if (replica != null && replica.isInitialized()) {
+                request = replica.get(project[1]);
+                if (request != null) {
+                    ALMMetrics.getInstance().recordReplicaHit();
+                }
+            }
+            if (request == null) {
+                setALMClientConnectionDetails(ALMConcurrencyLimiter.Priority.INTERACTIVE);
+                request = getALMClient().getDefect(project[0], project[1]);
+            }
+            if (request == null) {
+                throw new ProviderException("Unable to find request: " + property.getValue());
+            }
+
+            return createRequestInfo(request);
+        } catch (ALMClientException e) {
+            logger.debug(e.getLocalizedMessage());
+            throw new ProviderException(e.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public FieldInfo getFieldValues(String fieldName, List<Field> properties)
+            throws ProviderException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("provider.getFieldValues");
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            FieldInfo result = loadFieldValues(fieldName);
+            success = true;
+            return result;
+        } finally {
+            metrics.record(started, success);
+        }
+    }
+
+    private FieldInfo loadFieldValues(String fieldName) throws ProviderException {
+
+        if (fieldName.equalsIgnoreCase(PROJECT)) {
+            return getProjectFieldValues(fieldName);
+        } else if (fieldName.equalsIgnoreCase(STATUS_FILTERS)) {
+            return getStatusFiltersFieldValues(fieldName);
+        }
+
+        throw new ProviderException("Unsupported get values for field name: " + fieldName);
+    }
+
+    //================================================================================
+    // Getter Methods
+    // -------------------------------------------------------------------------------
+    // These methods are used to get the field values. The @Getter annotation is used
+    // by the system to generate a user interface and pass the correct parameters to
+    // to the provider
+    //================================================================================
+
+    @Getter(name = PROJECT, displayName = "Project", description = "Get HP ALM project field values.")
+    public FieldInfo getProjectFieldValues(String fieldName) throws ProviderException {
+        FieldInfo fieldInfo = new FieldInfo(fieldName);
+
+        try {
+            List<Project> hpalmProjects = getProjects();
+            if (hpalmProjects == null || hpalmProjects.size() < 1) {
+                return null;
+            }
+
+            List<FieldValueInfo> values = new ArrayList<>();
+            FieldValueInfo value = new FieldValueInfo(ALL_PROJECTS, "All Projects");
+            value.setDescription("Search all projects in the domain");
+            values.add(value);
+            for (ALMObject hpProj : hpalmProjects) {
+
+                value = new FieldValueInfo(hpProj.getId(), hpProj.getName());
+                if (hpProj.getId() == null || StringUtils.isEmpty(hpProj.getId())) {
+                    value.setId(hpProj.getName());
+                }
+
+                value.setDescription(hpProj.getName());
+                values.add(value);
+            }
+
+            fieldInfo.setValues(values);
+            return fieldInfo;
+        } catch (ALMClientException e) {
+            throw new ProviderException(e.getLocalizedMessage());
+        }
+    }
+
+
+    @Getter(name = STATUS_FILTERS, displayName = "Defect Status Filters", description = "Get HP ALM status filters field values.")
+    public FieldInfo getStatusFiltersFieldValues(String fieldName) throws ProviderException {
+        if (StringUtils.isEmpty(statusFilters)) {
+            return null;
+        }
+
+        StringTokenizer st = new StringTokenizer(statusFilters, ",;");
+        FieldInfo fieldInfo = new FieldInfo(fieldName);
+        List<FieldValueInfo> values = new ArrayList<>();
+        FieldValueInfo value;
+        String status;
+        while (st.hasMoreElements()) {
+            status = (String) st.nextElement();
+            status = status.trim();
+            value = new FieldValueInfo(status, status);
+            values.add(value);
+        }
+
+        fieldInfo.setValues(values);
+        return fieldInfo;
+    }
+
+    //================================================================================
+    // Private Methods
+    //================================================================================
+
+	private ALMClient getALMClient() {
+        if (almClient == null) {
+            almClient = createALMClient();
+        }
+        
+        return almClient;
+    }
+
+    private ALMClient createALMClient() {
+        ALMClient client = new ALMClient();
+        client.setMaxConnectionsPerRoute(parseIntProperty(maxConnectionsPerRoute, ALMConnectionManager.DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+        client.setMaxConnectionsTotal(parseIntProperty(maxConnectionsTotal, ALMConnectionManager.DEFAULT_MAX_CONNECTIONS_TOTAL));
+        client.setIdleConnectionTimeout(parseIntProperty(idleConnectionTimeout, ALMConnectionManager.DEFAULT_IDLE_CONNECTION_TIMEOUT));
+        client.setKeepAliveTimeout(parseIntProperty(keepAliveTimeout, ALMConnectionManager.DEFAULT_KEEPALIVE_TIMEOUT));
+        client.setExtraDefectFields(parseListProperty(extraFields));
+        client.setDefectCacheTtl(parseIntProperty(defectCacheTtl, DefectCache.DEFAULT_TTL));
+        DefectCache.getInstance().setMaxSize(parseIntProperty(defectCacheSize, DefectCache.DEFAULT_MAX_SIZE));
+        client.setConnectTimeout(parseIntProperty(connectTimeout, ALMClient.DEFAULT_CONNECT_TIMEOUT));
+        client.setReadTimeout(parseIntProperty(readTimeout, ALMClient.DEFAULT_READ_TIMEOUT));
+        client.setMaxRetries(parseIntProperty(maxRetries, ALMClient.DEFAULT_MAX_RETRIES));
+        client.setRetryBackoff(parseIntProperty(retryBackoff, ALMClient.DEFAULT_RETRY_BACKOFF));
+        client.setCircuitBreakerThreshold(parseIntProperty(circuitBreakerThreshold, ALMCircuitBreaker.DEFAULT_FAILURE_THRESHOLD));
+        client.setCircuitBreakerOpenTime(parseIntProperty(circuitBreakerOpenTime, ALMCircuitBreaker.DEFAULT_OPEN_TIME));
+        client.setMaxConcurrentRequests(parseIntProperty(maxConcurrentRequests, ALMConcurrencyLimiter.DEFAULT_MAX_LIMIT));
+        client.setMaxRequestWait(parseIntProperty(maxRequestWait, ALMConcurrencyLimiter.DEFAULT_MAX_WAIT));
+        client.setCompression(!"false".equalsIgnoreCase(compression));
+        ALMExecutor.getInstance().setThreads(parseIntProperty(asyncThreads, ALMExecutor.DEFAULT_THREADS));
+
+        return client;
+    }
+
+    /**
+     * Get the projects of the domain, served from the project cache unless it is disabled
+     */
+    private List<Project> getProjects() throws ALMClientException {
+        int refreshInterval = parseIntProperty(projectRefreshInterval, ProjectCache.DEFAULT_REFRESH_INTERVAL);
+        if (refreshInterval <= 0) {
+            setALMClientConnectionDetails(ALMConcurrencyLimiter.Priority.INTERACTIVE);
+            return getALMClient().getProjects();
+        }
+
+        String key = ProjectCache.getKey(getHpalmUrl(), getServiceUser(), getHpalmDomain());
+        return ProjectCache.getInstance().get(key, new ProjectCache.ProjectLoader() {
+            @Override
+            public List<Project> load() throws ALMClientException {
+                // the loader may run on a background thread so it uses its own client
+                ALMClient client = createALMClient();
+                client.createConnection(getSession(), getHpalmUrl(), getServiceUser(), getServicePassword(), useXsrf(), getHpalmDomain());
+                return client.getProjects();
+            }
+        }, refreshInterval, getSnapshotDir());
+    }
+	
+    /**
+     * Map a defect found in a project to a request, identified as "project:id"
+     *
+     * @param projectId  the project the defect was found in
+     * @param request  the defect
+     * @return the request
+     */
+    public ProviderInfo createRequestInfo(String projectId, Defect request) {
+        return getDefectMapper().map(projectId, request);
+    }
+
+    private ProviderInfo createRequestInfo(Defect request) {
+        return getDefectMapper().map(request);
+    }
+
+    private DefectMapper getDefectMapper() {
+        if (defectMapper == null) {
+            defectMapper = new DefectMapper(getHpalmUrl(), getHpalmDomain());
+        }
+        return defectMapper;
+    }
+
+    /**
+     * Search the defects of every project in the domain in parallel
+     */
+    private CrossProjectSearch.Result searchAllProjects(final List<String> statusFilters, final String titleFilter,
+                                                        int startIndex, int pageSize) throws ALMClientException {
+        List<String> projectIds = new ArrayList<>();
+        for (Project project : getProjects()) {
+            projectIds.add(project.getName());
+        }
+        logger.debug("Searching all HP ALM projects: " + projectIds);
+
+        setALMClientConnectionDetails(ALMConcurrencyLimiter.Priority.BULK);
+        final ALMClient client = getALMClient();
+        CrossProjectSearch search = new CrossProjectSearch(parseIntProperty(searchConcurrency, CrossProjectSearch.DEFAULT_CONCURRENCY));
+        return search.search(projectIds, new CrossProjectSearch.ProjectQuery() {
+            @Override
+            public CompletableFuture<DefectPage> query(String projectId, int startIndex, int pageSize) {
+                DefectReplica replica = getDefectReplica(projectId);
+                if (replica != null && replica.isInitialized()) {
+                    return CompletableFuture.completedFuture(replica.query(statusFilters, titleFilter, startIndex, pageSize));
+                }
+                return client.getDefectsAsync(projectId, statusFilters, titleFilter, startIndex, pageSize);
+            }
+        }, startIndex, pageSize);
+    }
+
+    /**
+     * Get the defect replica of a project, or null if the replica is disabled
+     */
+    private DefectReplica getDefectReplica(final String projectId) {
+        int syncInterval = parseIntProperty(replicaSyncInterval, DefectReplica.DEFAULT_SYNC_INTERVAL);
+        if (syncInterval <= 0) {
+            return null;
+        }
+
+        String key = DefectReplica.getKey(getHpalmUrl(), getServiceUser(), getHpalmDomain(), projectId);
+        return DefectReplica.getReplica(key, new DefectReplica.DefectLoader() {
+            private ALMClient client;
+
+            @Override
+            public DefectPage load(String modifiedSince, int startIndex, int pageSize) throws ALMClientException {
+                // synchronization runs on a background thread so it uses its own client
+                if (client == null) {
+                    client = createALMClient();
+                    client.setPriority(ALMConcurrencyLimiter.Priority.BULK);
+                }
+                client.createConnection(getSession(), getHpalmUrl(), getServiceUser(), getServicePassword(), useXsrf(), getHpalmDomain());
+                return client.getDefectsModifiedSince(projectId, modifiedSince, startIndex, pageSize);
+            }
+        }, syncInterval, !"false".equalsIgnoreCase(replicaNameIndex), getSnapshotDir());
+    }
+
+    /**
+     * Get the directory of the defect replica and project list snapshots, or null if snapshots are disabled
+     */
+    private File getSnapshotDir() {
+        // ignore unresolved property placeholders, only an explicitly configured directory enables snapshots
+        if (StringUtils.isBlank(snapshotDirectory) || snapshotDirectory.startsWith("${")) {
+            return null;
+        }
+        return new File(snapshotDirectory.trim());
+    }
+
+    /**
+     * Connect the client, its requests wait behind those of a higher priority when too many are in flight
+     */
+    private void setALMClientConnectionDetails(ALMConcurrencyLimiter.Priority priority) {
+        getALMClient().setPriority(priority);
+        getALMClient().createConnection(getSession(), getHpalmUrl(), getServiceUser(), getServicePassword(), useXsrf(), getHpalmDomain());
+    }
+
+    private int getResultLimit() {
+        if (resultLimit == null) {
+            resultLimit = 300;
+
+            if (StringUtils.isNotBlank(requestResultLimit)) {
+                try {
+                    resultLimit = Integer.parseInt(requestResultLimit);
+                } catch (Throwable e) {
+                    logger.warn(e.getMessage(), e);
+                }
+            }
+        }
+
+        return resultLimit;
+    }
+
+    private List<String> parseListProperty(String value) {
+        List<String> values = new ArrayList<>();
+        // ignore unresolved property placeholders
+        if (StringUtils.isNotBlank(value) && !value.startsWith("${")) {
+            StringTokenizer st = new StringTokenizer(value, ",;");
+            while (st.hasMoreElements()) {
+                String token = ((String) st.nextElement()).trim();
+                if (StringUtils.isNotEmpty(token)) {
+                    values.add(token);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    private int parseIntProperty(String value, int defaultValue) {
+        // ignore unresolved property placeholders
+        if (StringUtils.isNotBlank(value) && !value.startsWith("${")) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                // settings are parsed on every request, only report each bad value once
+                if (invalidIntProperties.add(value)) {
+                    logger.warn("Invalid number \"" + value + "\" in HP ALM provider settings, using " + defaultValue);
+                }
+            }
+        }
+
+        return defaultValue;
+    }
+
+}
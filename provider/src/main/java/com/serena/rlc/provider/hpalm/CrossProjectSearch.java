@@ -0,0 +1,192 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm;
+
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Searches the defects of several projects in parallel, with a cap on the number of
+ * concurrent project queries. Results are merged as they arrive, ordered by project and
+ * id, keeping only as many defects as are needed for the requested page. A project that
+ * fails is left out of the results and reported in them, the search only fails when every
+ * project does.
+ *
+ * As the merged order interleaves projects, each project is asked for its first
+ * startIndex + pageSize defects, so the cost of a page grows with its depth: a page at
+ * index n reads up to n + pageSize defects from every project.
+ *
+ * @author klee
+ */
+
+class CrossProjectSearch {
+    private static final Logger logger = LoggerFactory.getLogger(CrossProjectSearch.class);
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    private static final Comparator<ProjectDefect> ORDER = new Comparator<ProjectDefect>() {
+        @Override
+        public int compare(ProjectDefect d1, ProjectDefect d2) {
+            int result = d1.projectId.compareToIgnoreCase(d2.projectId);
+            if (result == 0) {
+                result = d1.projectId.compareTo(d2.projectId);
+            }
+            if (result == 0) {
+                String id1 = (d1.defect.getId() == null ? "" : d1.defect.getId());
+                String id2 = (d2.defect.getId() == null ? "" : d2.defect.getId());
+                result = (id1.length() != id2.length() ? id1.length() - id2.length() : id1.compareTo(id2));
+            }
+            return result;
+        }
+    };
+
+    private final int concurrency;
+
+    CrossProjectSearch(int concurrency) {
+        this.concurrency = (concurrency > 0 ? concurrency : DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Search the projects
+     *
+     * @param projectIds  the projects to search
+     * @param query  the query to run against each project
+     * @param startIndex  the zero based index of the first defect to return
+     * @param pageSize  the number of defects to return
+     * @return the requested page of the merged results, the total number of matches and the
+     *         projects that could not be searched
+     * @throws ALMClientException if every project query failed
+     */
+    Result search(List<String> projectIds, ProjectQuery query, int startIndex, int pageSize) throws ALMClientException {
+        int limit = startIndex + pageSize;
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        TreeSet<ProjectDefect> merged = new TreeSet<>(ORDER);
+        int total = 0;
+        int next = 0;
+        int inFlight = 0;
+        List<String> failedProjectIds = new ArrayList<>();
+        Throwable firstError = null;
+
+        try {
+            while (next < projectIds.size() || inFlight > 0) {
+                while (inFlight < concurrency && next < projectIds.size()) {
+                    final String projectId = projectIds.get(next++);
+                    final BlockingQueue<Completion> target = completions;
+                    query.query(projectId, 0, limit).whenComplete(new BiConsumer<DefectPage, Throwable>() {
+                        @Override
+                        public void accept(DefectPage page, Throwable error) {
+                            target.add(new Completion(projectId, page, error));
+                        }
+                    });
+                    inFlight++;
+                }
+
+                Completion completion = completions.take();
+                inFlight--;
+                if (completion.error != null) {
+                    logger.warn("Unable to search HP ALM project " + completion.projectId + ": " + completion.error.getMessage());
+                    failedProjectIds.add(completion.projectId);
+                    if (firstError == null) {
+                        firstError = completion.error;
+                    }
+                    continue;
+                }
+
+                total += completion.page.getTotalResults();
+                for (Defect defect : completion.page.getDefects()) {
+                    merged.add(new ProjectDefect(completion.projectId, defect));
+                    // only keep what is needed for the requested page
+                    if (merged.size() > limit) {
+                        merged.pollLast();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ALMClientException("Interrupted while searching HP ALM projects", e);
+        }
+
+        if (!failedProjectIds.isEmpty() && failedProjectIds.size() == projectIds.size()) {
+            throw (firstError instanceof ALMClientException ? (ALMClientException) firstError
+                    : new ALMClientException(firstError.getMessage(), firstError));
+        }
+
+        Result result = new Result(total);
+        result.failedProjectIds.addAll(failedProjectIds);
+        Iterator<ProjectDefect> it = merged.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            ProjectDefect projectDefect = it.next();
+            if (i >= startIndex) {
+                result.projectIds.add(projectDefect.projectId);
+                result.defects.add(projectDefect.defect);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queries the defects of a single project
+     */
+    interface ProjectQuery {
+        CompletableFuture<DefectPage> query(String projectId, int startIndex, int pageSize);
+    }
+
+    /**
+     * A page of merged results, with the project of each defect and the projects that failed
+     */
+    static class Result {
+        final List<String> projectIds = new ArrayList<>();
+        final List<Defect> defects = new ArrayList<>();
+        final List<String> failedProjectIds = new ArrayList<>();
+        final int total;
+
+        Result(int total) {
+            this.total = total;
+        }
+    }
+
+    private static class ProjectDefect {
+        final String projectId;
+        final Defect defect;
+
+        ProjectDefect(String projectId, Defect defect) {
+            this.projectId = projectId;
+            this.defect = defect;
+        }
+    }
+
+    private static class Completion {
+        final String projectId;
+        final DefectPage page;
+        final Throwable error;
+
+        Completion(String projectId, DefectPage page, Throwable error) {
+            this.projectId = projectId;
+            this.page = page;
+            this.error = (error != null && error.getCause() != null && error instanceof CompletionException
+                    ? error.getCause() : error);
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm;
+
+import com.serena.rlc.provider.domain.Field;
+import com.serena.rlc.provider.domain.ProviderInfo;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Maps HP ALM defects to provider requests. The defect URL prefix is built once per
+ * project, field names and labels are shared and field lists are sized up front. Large
+ * result sets are mapped in parallel.
+ *
+ * @author klee
+ */
+
+public class DefectMapper {
+
+    /**
+     * Result sets of at least this size are mapped in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 1000;
+
+    private static final int PARALLEL_CHUNK_SIZE = 250;
+
+    // the request fields: name, display name
+    private static final String[][] FIELDS = {
+            {"project", "Project"},
+            {"owner", "Owner"},
+            {"status", "Status"},
+            {"severity", "Severity"},
+            {"priority", "Priority"},
+            {"creator", "Creator"},
+            {"dateCreated", "Date Created"},
+            {"lastUpdated", "Last Updated"}
+    };
+
+    private final String projectUrlPrefix;
+    private final ConcurrentMap<String, String> urlPrefixes = new ConcurrentHashMap<>();
+
+    /**
+     * @param almUrl  the HP ALM server URL
+     * @param domain  the HP ALM domain
+     */
+    public DefectMapper(String almUrl, String domain) {
+        //http://localhost:8080/qcbin/ui/?p=DEFAULT/Demo#/defects/1/details
+        this.projectUrlPrefix = almUrl + "/qcbin/ui/?p=" + domain + "/";
+    }
+
+    /**
+     * Map a defect found in a project to a request, identified as "project:id"
+     *
+     * @param projectId  the project the defect was found in
+     * @param defect  the defect
+     * @return the request
+     */
+    public ProviderInfo map(String projectId, Defect defect) {
+        ProviderInfo request = new ProviderInfo(defect.getId(), defect.getName(), defect.getType(), defect.getName());
+        // combine project and id for unique id
+        request.setId(projectId + ":" + defect.getId());
+        populate(request, projectId, defect);
+        return request;
+    }
+
+    /**
+     * Map a defect to a request identified by the defect id alone
+     *
+     * @param defect  the defect
+     * @return the request
+     */
+    public ProviderInfo map(Defect defect) {
+        ProviderInfo request = new ProviderInfo(defect.getId(), defect.getName(), defect.getType(), defect.getName());
+        if (StringUtils.isEmpty(defect.getId())) {
+            request.setId(defect.getName());
+        }
+        populate(request, defect.getProject(), defect);
+        return request;
+    }
+
+    /**
+     * Map a list of defects, in parallel if there are many
+     *
+     * @param projectId  the project the defects were found in
+     * @param projectIds  the project of each defect, or null if all were found in projectId
+     * @param defects  the defects
+     * @return the requests, in the order of the defects
+     */
+    public ProviderInfo[] mapAll(final String projectId, final List<String> projectIds, final List<Defect> defects) {
+        final ProviderInfo[] requests = new ProviderInfo[defects.size()];
+        // with a single worker thread the common pool would start a thread per chunk
+        if (defects.size() < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            mapRange(projectId, projectIds, defects, requests, 0, defects.size());
+            return requests;
+        }
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int start = 0; start < defects.size(); start += PARALLEL_CHUNK_SIZE) {
+            final int from = start;
+            final int to = Math.min(defects.size(), start + PARALLEL_CHUNK_SIZE);
+            chunks.add(CompletableFuture.runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    mapRange(projectId, projectIds, defects, requests, from, to);
+                }
+            }));
+        }
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[chunks.size()])).join();
+        return requests;
+    }
+
+    private void mapRange(String projectId, List<String> projectIds, List<Defect> defects, ProviderInfo[] requests,
+                          int from, int to) {
+        for (int i = from; i < to; i++) {
+            requests[i] = map(projectIds != null ? projectIds.get(i) : projectId, defects.get(i));
+        }
+    }
+
+    private void populate(ProviderInfo request, String projectId, Defect defect) {
+        request.setDescription(defect.getDescription());
+        request.setUrl(getUrlPrefix(projectId) + defect.getId() + "/details");
+
+        Map<String, String> extraFields = defect.getExtraFields();
+        List<Field> fields = new ArrayList<>(FIELDS.length + extraFields.size());
+        String[] values = {defect.getProject(), defect.getOwner(), defect.getStatus(), defect.getSeverity(),
+                defect.getPriority(), defect.getCreator(), defect.getDateCreated(), defect.getLastUpdated()};
+        for (int i = 0; i < FIELDS.length; i++) {
+            addField(fields, FIELDS[i][0], FIELDS[i][1], values[i]);
+        }
+        for (Map.Entry<String, String> extraField : extraFields.entrySet()) {
+            addField(fields, extraField.getKey(), extraField.getKey(), extraField.getValue());
+        }
+        request.setProperties(fields);
+    }
+
+    private String getUrlPrefix(String projectId) {
+        String key = String.valueOf(projectId);
+        String prefix = urlPrefixes.get(key);
+        if (prefix == null) {
+            prefix = projectUrlPrefix + key + "#/defects/";
+            urlPrefixes.putIfAbsent(key, prefix);
+        }
+        return prefix;
+    }
+
+    private static void addField(List<Field> fieldCollection, String fieldName, String fieldDisplayName, String fieldValue) {
+        if (StringUtils.isNotEmpty(fieldValue)) {
+            Field field = new Field(fieldName, fieldDisplayName);
+            field.setValue(fieldValue);
+            fieldCollection.add(field);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import com.serena.rlc.provider.hpalm.domain.Defect;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide, size bounded cache of defects keyed by HP ALM server, domain, project and id.
+ * Entries older than the time to live have to be revalidated against the defect
+ * "last-modified" field before they are used again.
+ *
+ * @author klee
+ */
+
+public class DefectCache {
+
+    public static final int DEFAULT_TTL = 300;
+    public static final int DEFAULT_MAX_SIZE = 5000;
+
+    private static final DefectCache instance = new DefectCache();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    private final Map<String, CachedDefect> entries = new LinkedHashMap<String, CachedDefect>(256, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedDefect> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private DefectCache() {
+    }
+
+    public static DefectCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * The cache is shared by all provider configurations, so defects are cached per user:
+     * one user must not be served a defect fetched for another
+     */
+    public static String getKey(String url, String username, String domain, String projectId, String defectId) {
+        return url + "|" + username + "|" + domain + "|" + projectId + "|" + defectId;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (maxSize > 0) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get a cached entry, expired or not
+     *
+     * @param key  the cache key
+     * @return the entry or null if the defect is not cached
+     */
+    public CachedDefect get(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    public void put(String key, Defect defect) {
+        synchronized (entries) {
+            entries.put(key, new CachedDefect(defect));
+        }
+    }
+
+    /**
+     * Get the keys of expired entries that share a prefix, e.g. the defects of one project
+     *
+     * @param prefix  the key prefix, see {@link #getKey(String, String, String, String, String)}
+     * @param ttl  the time to live in seconds
+     * @param max  the maximum number of keys to return
+     * @return the keys, least recently used first
+     */
+    public List<String> getExpiredKeys(String prefix, int ttl, int max) {
+        List<String> keys = new ArrayList<>();
+        synchronized (entries) {
+            for (Map.Entry<String, CachedDefect> entry : entries.entrySet()) {
+                if (keys.size() >= max) {
+                    break;
+                }
+                if (entry.getKey().startsWith(prefix) && entry.getValue().isExpired(ttl)) {
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+        return keys;
+    }
+
+    public void remove(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void recordRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of expired entries that were still current in HP ALM
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return (total == 0 ? 0.0 : (double) h / total);
+    }
+
+    /**
+     * A cached defect and the time it was last validated
+     */
+    public static class CachedDefect {
+        private final Defect defect;
+        private volatile long validated;
+
+        CachedDefect(Defect defect) {
+            this.defect = defect;
+            this.validated = System.currentTimeMillis();
+        }
+
+        public Defect getDefect() {
+            return defect;
+        }
+
+        public boolean isExpired(int ttl) {
+            return System.currentTimeMillis() - validated > ttl * 1000L;
+        }
+
+        public void revalidated() {
+            this.validated = System.currentTimeMillis();
+        }
+    }
+
+}
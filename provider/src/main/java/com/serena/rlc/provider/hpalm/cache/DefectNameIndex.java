@@ -0,0 +1,235 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of defect names supporting the same "name contains text" search as the
+ * HP ALM name[*text*] query. Candidates are found through a trigram index and verified
+ * against the name, then ranked using a word index: whole word matches first, then word
+ * prefix matches, then any other substring match.
+ *
+ * @author klee
+ */
+
+public class DefectNameIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Comparator<String> idOrder;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private final NavigableMap<String, Set<String>> words = new TreeMap<>();
+
+    /**
+     * @param idOrder  the order of defects with the same rank
+     */
+    public DefectNameIndex(Comparator<String> idOrder) {
+        this.idOrder = idOrder;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace the name of a defect
+     *
+     * @param defectId  the id of the defect
+     * @param name  the name of the defect
+     */
+    public void put(String defectId, String name) {
+        String normalized = normalize(name);
+        lock.writeLock().lock();
+        try {
+            String previous = names.put(defectId, normalized);
+            if (previous != null) {
+                if (previous.equals(normalized)) {
+                    return;
+                }
+                unindex(defectId, previous);
+            }
+            index(defectId, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String defectId) {
+        lock.writeLock().lock();
+        try {
+            String previous = names.remove(defectId);
+            if (previous != null) {
+                unindex(defectId, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the defects whose name contains the text, ignoring case
+     *
+     * @param text  the text to search for
+     * @return the ids of the matching defects, best match first
+     */
+    public List<String> search(String text) {
+        final String query = normalize(text);
+        lock.readLock().lock();
+        try {
+            Set<String> candidates = findCandidates(query);
+            List<String> matches = new ArrayList<>(candidates.size());
+            for (String defectId : candidates) {
+                String name = names.get(defectId);
+                if (name != null && name.contains(query)) {
+                    matches.add(defectId);
+                }
+            }
+
+            final Set<String> wordMatches = getOrEmpty(words.get(query));
+            final Set<String> prefixMatches = new HashSet<>();
+            for (Set<String> ids : words.subMap(query, true, query + Character.MAX_VALUE, false).values()) {
+                prefixMatches.addAll(ids);
+            }
+            Collections.sort(matches, new Comparator<String>() {
+                @Override
+                public int compare(String id1, String id2) {
+                    int rank = rank(id2, wordMatches, prefixMatches) - rank(id1, wordMatches, prefixMatches);
+                    return (rank != 0 ? rank : idOrder.compare(id1, id2));
+                }
+            });
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int rank(String defectId, Set<String> wordMatches, Set<String> prefixMatches) {
+        if (wordMatches.contains(defectId)) {
+            return 2;
+        }
+        return (prefixMatches.contains(defectId) ? 1 : 0);
+    }
+
+    /**
+     * Get the defects that contain every trigram of the query, or all defects for short queries
+     */
+    private Set<String> findCandidates(String query) {
+        if (query.length() < GRAM_LENGTH) {
+            return names.keySet();
+        }
+        Set<String> smallest = null;
+        List<Set<String>> postings = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Set<String> ids = grams.get(query.substring(i, i + GRAM_LENGTH));
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            postings.add(ids);
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        Set<String> candidates = new HashSet<>(smallest);
+        for (Set<String> ids : postings) {
+            if (ids != smallest) {
+                candidates.retainAll(ids);
+            }
+        }
+        return candidates;
+    }
+
+    private void index(String defectId, String name) {
+        for (String gram : getGrams(name)) {
+            add(grams, gram, defectId);
+        }
+        for (String word : getWords(name)) {
+            add(words, word, defectId);
+        }
+    }
+
+    private void unindex(String defectId, String name) {
+        for (String gram : getGrams(name)) {
+            remove(grams, gram, defectId);
+        }
+        for (String word : getWords(name)) {
+            remove(words, word, defectId);
+        }
+    }
+
+    private static Set<String> getGrams(String name) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            result.add(name.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    private static Set<String> getWords(String name) {
+        Set<String> result = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= name.length(); i++) {
+            boolean wordChar = (i < name.length() && Character.isLetterOrDigit(name.charAt(i)));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(name.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static void add(Map<String, Set<String>> index, String key, String defectId) {
+        Set<String> ids = index.get(key);
+        if (ids == null) {
+            ids = new HashSet<>();
+            index.put(key, ids);
+        }
+        ids.add(defectId);
+    }
+
+    private static void remove(Map<String, Set<String>> index, String key, String defectId) {
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(defectId);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> getOrEmpty(Set<String> ids) {
+        return (ids == null ? Collections.<String>emptySet() : ids);
+    }
+
+    private static String normalize(String text) {
+        return (text == null ? "" : text.toLowerCase());
+    }
+
+}
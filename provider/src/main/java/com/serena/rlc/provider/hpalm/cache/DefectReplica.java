@@ -0,0 +1,426 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local replica of the defects of an HP ALM project. After an initial full load the replica
+ * only polls HP ALM for defects whose "last-modified" time is at or after the watermark and
+ * merges them in. The watermark is the newest time seen, less the time the synchronization
+ * took and a margin, so defects changed while it ran are fetched again rather than missed.
+ * A periodic full load drops deleted defects.
+ *
+ * With a {@link DefectSnapshot} the replica is saved to disk after every synchronization.
+ * A replica created after a restart is restored from its snapshot and served straight
+ * away, its first synchronization only fetching the defects changed since the snapshot.
+ *
+ * @author klee
+ */
+
+public class DefectReplica implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(DefectReplica.class);
+
+    public static final int DEFAULT_SYNC_INTERVAL = 0;
+
+    private static final int SYNC_PAGE_SIZE = 1000;
+    private static final int FULL_SYNC_INTERVALS = 60;
+    private static final int IDLE_INTERVALS = 120;
+    private static final long SYNC_OVERLAP_MILLIS = 60000;
+    private static final String WATERMARK_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * Orders numeric defect ids numerically
+     */
+    private static final Comparator<String> ID_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String id1, String id2) {
+            if (id1.length() != id2.length()) {
+                return id1.length() - id2.length();
+            }
+            return id1.compareTo(id2);
+        }
+    };
+
+    private static final ConcurrentMap<String, DefectReplica> replicas = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final int syncInterval;
+    private final boolean indexNames;
+    private final DefectSnapshot snapshot;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile ConcurrentNavigableMap<String, Defect> defects = new ConcurrentSkipListMap<>(ID_ORDER);
+    private volatile DefectNameIndex nameIndex;
+    private volatile DefectLoader loader;
+    private volatile String watermark;
+    private volatile boolean initialized;
+    private volatile long lastAccess;
+    private volatile long lastSync;
+    private int syncCount;
+    private ScheduledFuture<?> syncTask;
+
+    private DefectReplica(String key, int syncInterval, boolean indexNames, File snapshotDirectory) {
+        this.key = key;
+        this.syncInterval = syncInterval;
+        this.indexNames = indexNames;
+        this.snapshot = (snapshotDirectory == null ? null : new DefectSnapshot(snapshotDirectory, key));
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    public static String getKey(String url, String username, String domain, String projectId) {
+        return url + "|" + username + "|" + domain + "|" + projectId;
+    }
+
+    /**
+     * Get the replica of a project, creating it and scheduling its synchronization if needed.
+     * A new replica is loaded in the background and is not initialized until that completes.
+     *
+     * @param key  the replica key
+     * @param loader  the loader used to synchronize the replica
+     * @param syncInterval  the number of seconds between synchronizations
+     * @param indexNames  true to maintain a name index for title searches
+     * @return the replica
+     */
+    public static DefectReplica getReplica(String key, DefectLoader loader, int syncInterval, boolean indexNames) {
+        return getReplica(key, loader, syncInterval, indexNames, null);
+    }
+
+    /**
+     * Get the replica of a project, restoring a new replica from its snapshot if there is one
+     *
+     * @param key  the replica key
+     * @param loader  the loader used to synchronize the replica
+     * @param syncInterval  the number of seconds between synchronizations
+     * @param indexNames  true to maintain a name index for title searches
+     * @param snapshotDirectory  the directory of the replica snapshots, null to not keep a snapshot
+     * @return the replica
+     */
+    public static DefectReplica getReplica(String key, DefectLoader loader, int syncInterval, boolean indexNames,
+                                           File snapshotDirectory) {
+        DefectReplica replica = replicas.get(key);
+        if (replica == null) {
+            DefectReplica newReplica = new DefectReplica(key, syncInterval, indexNames, snapshotDirectory);
+            replica = replicas.putIfAbsent(key, newReplica);
+            if (replica == null) {
+                replica = newReplica;
+                replica.loader = loader;
+                replica.restore();
+                replica.schedule();
+            }
+        }
+        replica.loader = loader;
+        replica.lastAccess = System.currentTimeMillis();
+        return replica;
+    }
+
+    public static void remove(String key) {
+        DefectReplica replica = replicas.remove(key);
+        if (replica != null) {
+            replica.cancel();
+        }
+    }
+
+    public String getReplicaKey() {
+        return key;
+    }
+
+    /**
+     * @return true once the initial full load has completed, or the replica was restored from its snapshot
+     */
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public String getWatermark() {
+        return watermark;
+    }
+
+    public long getLastSync() {
+        return lastSync;
+    }
+
+    public int size() {
+        return defects.size();
+    }
+
+    public Defect get(String defectId) {
+        return (defectId == null ? null : defects.get(defectId));
+    }
+
+    public Collection<Defect> getDefects() {
+        return defects.values();
+    }
+
+    /**
+     * Query the replica the same way HP ALM would filter the defects, ordered by id, or
+     * ranked by relevance when searching by title with the name index enabled
+     *
+     * @param statusFilters  list of statuses to filter for, e.g. New,Open
+     * @param titleFilter  text the defect name has to contain
+     * @param startIndex  the zero based index of the first defect to return
+     * @param pageSize  the number of defects to return
+     * @return the page of defects and the total number of matching defects
+     */
+    public DefectPage query(List<String> statusFilters, String titleFilter, int startIndex, int pageSize) {
+        String title = (titleFilter == null || titleFilter.isEmpty() ? null : titleFilter.toLowerCase());
+        ConcurrentNavigableMap<String, Defect> currentDefects = defects;
+        DefectNameIndex currentIndex = nameIndex;
+        Iterable<Defect> candidates = currentDefects.values();
+        if (title != null && currentIndex != null) {
+            List<Defect> matches = new ArrayList<>();
+            for (String defectId : currentIndex.search(title)) {
+                Defect defect = currentDefects.get(defectId);
+                if (defect != null) {
+                    matches.add(defect);
+                }
+            }
+            candidates = matches;
+        }
+
+        List<Defect> page = new ArrayList<>(Math.max(0, Math.min(pageSize, currentDefects.size())));
+        int total = 0;
+        for (Defect defect : candidates) {
+            if (!matchesStatus(defect, statusFilters)) {
+                continue;
+            }
+            if (title != null && (defect.getName() == null || !defect.getName().toLowerCase().contains(title))) {
+                continue;
+            }
+            if (total >= startIndex && (pageSize <= 0 || page.size() < pageSize)) {
+                page.add(defect);
+            }
+            total++;
+        }
+        return new DefectPage(page, startIndex, total);
+    }
+
+    /**
+     * Synchronize the replica with HP ALM, doing a full load if it has not been loaded yet
+     *
+     * @throws ALMClientException
+     */
+    public void sync() throws ALMClientException {
+        if (!syncing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!initialized || ++syncCount >= FULL_SYNC_INTERVALS) {
+                fullSync();
+                syncCount = 0;
+            } else {
+                if (indexNames && nameIndex == null) {
+                    // a restored replica indexes its names here rather than before it is served
+                    nameIndex = createNameIndex(defects.values());
+                }
+                deltaSync();
+            }
+            lastSync = System.currentTimeMillis();
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (System.currentTimeMillis() - lastAccess > IDLE_INTERVALS * syncInterval * 1000L) {
+            logger.debug("HP ALM defect replica {} is no longer used, stopping synchronization", key);
+            remove(key);
+            return;
+        }
+        try {
+            sync();
+        } catch (Exception e) {
+            logger.warn("Unable to synchronize HP ALM defect replica: " + e.getMessage());
+        }
+    }
+
+    private void fullSync() throws ALMClientException {
+        ConcurrentNavigableMap<String, Defect> loaded = new ConcurrentSkipListMap<>(ID_ORDER);
+        DefectNameIndex loadedIndex = (indexNames ? new DefectNameIndex(ID_ORDER) : null);
+        long started = System.currentTimeMillis();
+        String newWatermark = rewind(load(null, loaded, loadedIndex, null, null), null, started);
+        defects = loaded;
+        nameIndex = loadedIndex;
+        watermark = newWatermark;
+        initialized = true;
+        logger.debug("Loaded {} defects into HP ALM defect replica {}", loaded.size(), key);
+        if (snapshot != null) {
+            try {
+                snapshot.write(loaded.values(), newWatermark);
+            } catch (IOException e) {
+                logger.warn("Unable to save HP ALM defect replica snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    private void deltaSync() throws ALMClientException {
+        int before = defects.size();
+        List<Defect> changed = (snapshot != null ? new ArrayList<Defect>() : null);
+        String previousWatermark = watermark;
+        long started = System.currentTimeMillis();
+        watermark = rewind(load(watermark, defects, nameIndex, watermark, changed), previousWatermark, started);
+        logger.debug("Merged changes into HP ALM defect replica {}, {} new defects", key, defects.size() - before);
+        if (snapshot != null && (!changed.isEmpty() || !StringUtils.equals(previousWatermark, watermark))) {
+            try {
+                snapshot.update(changed, defects.values(), watermark);
+            } catch (IOException e) {
+                logger.warn("Unable to save HP ALM defect replica snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Move the newest "last-modified" time seen back by the time the synchronization took,
+     * plus a margin. A defect changed on a page that was already read gets a time before
+     * the newest one seen on a later page, it has to come back in the next synchronization.
+     *
+     * @param newest  the newest "last-modified" time seen
+     * @param previous  the watermark before the synchronization, never moved back past
+     * @param started  when the synchronization started
+     * @return the new watermark
+     */
+    static String rewind(String newest, String previous, long started) {
+        if (newest == null || newest.equals(previous)) {
+            return newest;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(WATERMARK_FORMAT);
+        // a plain offset, without daylight saving jumps
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String rewound;
+        try {
+            long overlap = System.currentTimeMillis() - started + SYNC_OVERLAP_MILLIS;
+            rewound = format.format(new Date(format.parse(newest).getTime() - overlap));
+        } catch (ParseException e) {
+            return (previous != null ? previous : newest);
+        }
+        return (previous != null && rewound.compareTo(previous) < 0 ? previous : rewound);
+    }
+
+    /**
+     * Fill a new replica from its snapshot, if it has one
+     */
+    private void restore() {
+        if (snapshot == null) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        DefectSnapshot.Contents contents = snapshot.load();
+        if (contents == null) {
+            return;
+        }
+        for (Defect defect : contents.getDefects()) {
+            if (defect.getId() != null) {
+                defects.put(defect.getId(), defect);
+            }
+        }
+        watermark = contents.getWatermark();
+        initialized = true;
+        logger.info("Restored {} defects into HP ALM defect replica {} from its snapshot in {} ms",
+                defects.size(), key, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Load all pages of defects modified since the given time into a map and name index
+     *
+     * @param changed  list the loaded defects are added to, or null
+     * @return the newest "last-modified" time seen
+     */
+    private String load(String modifiedSince, ConcurrentNavigableMap<String, Defect> target, DefectNameIndex targetIndex,
+                        String currentWatermark, List<Defect> changed) throws ALMClientException {
+        String newWatermark = currentWatermark;
+        int startIndex = 0;
+        while (true) {
+            DefectPage page = loader.load(modifiedSince, startIndex, SYNC_PAGE_SIZE);
+            for (Defect defect : page.getDefects()) {
+                if (defect.getId() == null) {
+                    continue;
+                }
+                Defect previous = target.put(defect.getId(), defect);
+                // defects modified at the watermark come back every time, and again after a restore
+                if (changed != null && (previous == null || !StringUtils.equals(previous.getLastUpdated(), defect.getLastUpdated()))) {
+                    changed.add(defect);
+                }
+                if (targetIndex != null) {
+                    targetIndex.put(defect.getId(), defect.getName());
+                }
+                String lastModified = defect.getLastUpdated();
+                if (lastModified != null && (newWatermark == null || lastModified.compareTo(newWatermark) > 0)) {
+                    newWatermark = lastModified;
+                }
+            }
+            startIndex += page.getDefects().size();
+            if (page.getDefects().isEmpty() || startIndex >= page.getTotalResults()) {
+                break;
+            }
+        }
+        return newWatermark;
+    }
+
+    private static DefectNameIndex createNameIndex(Collection<Defect> defects) {
+        DefectNameIndex index = new DefectNameIndex(ID_ORDER);
+        for (Defect defect : defects) {
+            index.put(defect.getId(), defect.getName());
+        }
+        return index;
+    }
+
+    private static boolean matchesStatus(Defect defect, List<String> statusFilters) {
+        if (statusFilters == null || statusFilters.isEmpty()) {
+            return true;
+        }
+        for (String status : statusFilters) {
+            if (status.equalsIgnoreCase(defect.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void schedule() {
+        syncTask = RefreshScheduler.getScheduler().scheduleWithFixedDelay(this, 0, syncInterval, TimeUnit.SECONDS);
+    }
+
+    private synchronized void cancel() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+        }
+    }
+
+    /**
+     * Loads a page of defects modified since a point in time from HP ALM
+     */
+    public interface DefectLoader {
+        DefectPage load(String modifiedSince, int startIndex, int pageSize) throws ALMClientException;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * On disk snapshot of a defect replica, so that after a restart the replica is served
+ * straight away while it catches up with HP ALM. A full synchronization rewrites the
+ * snapshot, an incremental one appends the changed defects and the new watermark to it.
+ * Once the appended defects outnumber the replica the snapshot is rewritten as a whole.
+ *
+ * @author klee
+ */
+
+public class DefectSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(DefectSnapshot.class);
+
+    private static final byte DEFECT = 1;
+    private static final byte WATERMARK = 2;
+
+    private final SnapshotFile file;
+    private boolean current;
+    private int appended;
+
+    /**
+     * @param directory  the snapshot directory
+     * @param key  the replica key
+     */
+    public DefectSnapshot(File directory, String key) {
+        this.file = new SnapshotFile(directory, "defects", key);
+    }
+
+    /**
+     * Load the snapshot, later records of a defect replacing earlier ones
+     *
+     * @return the snapshot contents, or null if there is no usable snapshot
+     */
+    public synchronized Contents load() {
+        final Contents contents = new Contents();
+        try {
+            boolean found = file.read(new SnapshotFile.RecordHandler() {
+                @Override
+                public void record(byte type, ByteBuffer record) {
+                    if (type == DEFECT) {
+                        contents.defects.add(DefectCodec.read(record));
+                    } else if (type == WATERMARK) {
+                        if (!contents.complete) {
+                            // the defects before the first watermark are those of the last full write
+                            contents.written = contents.defects.size();
+                        }
+                        contents.watermark = DefectCodec.readString(record);
+                        contents.complete = true;
+                    }
+                }
+            });
+            if (!found || !contents.complete) {
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Discarding unreadable HP ALM defect snapshot " + file.getFile() + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+        current = true;
+        appended = contents.defects.size() - contents.written;
+        return contents;
+    }
+
+    /**
+     * Replace the snapshot with all defects of the replica
+     *
+     * @param defects  the defects
+     * @param watermark  the replica watermark
+     * @throws IOException
+     */
+    public synchronized void write(Collection<Defect> defects, String watermark) throws IOException {
+        current = false;
+        try (SnapshotFile.Writer writer = file.rewrite()) {
+            for (Defect defect : defects) {
+                DefectCodec.write(writer.begin(), defect);
+                writer.end(DEFECT);
+            }
+            DefectCodec.writeString(writer.begin(), watermark);
+            writer.end(WATERMARK);
+            writer.commit();
+        }
+        current = true;
+        appended = 0;
+    }
+
+    /**
+     * Add the changes of an incremental synchronization to the snapshot
+     *
+     * @param changed  the defects that changed
+     * @param defects  all defects of the replica, written instead if the snapshot has grown too large
+     * @param watermark  the replica watermark
+     * @throws IOException
+     */
+    public synchronized void update(Collection<Defect> changed, Collection<Defect> defects, String watermark) throws IOException {
+        if (!current || !file.exists() || appended + changed.size() > defects.size()) {
+            write(defects, watermark);
+            return;
+        }
+        try (SnapshotFile.Writer writer = file.append()) {
+            for (Defect defect : changed) {
+                DefectCodec.write(writer.begin(), defect);
+                writer.end(DEFECT);
+            }
+            DefectCodec.writeString(writer.begin(), watermark);
+            writer.end(WATERMARK);
+            writer.commit();
+        }
+        appended += changed.size();
+    }
+
+    /**
+     * The defects and watermark of a snapshot
+     */
+    public static class Contents {
+        private final List<Defect> defects = new ArrayList<>();
+        private String watermark;
+        private boolean complete;
+        private int written;
+
+        public List<Defect> getDefects() {
+            return defects;
+        }
+
+        public String getWatermark() {
+            return watermark;
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import com.serena.rlc.provider.hpalm.domain.Project;
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide cache of the HP ALM project list of each server, user and domain. Once a
+ * list has been loaded it is served immediately and refreshed in the background. With a
+ * {@link ProjectSnapshot} the list survives restarts: it is restored from the snapshot on
+ * first use and refreshed in the background straight away.
+ *
+ * @author klee
+ */
+
+public class ProjectCache {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectCache.class);
+
+    public static final int DEFAULT_REFRESH_INTERVAL = 600;
+
+    /**
+     * Number of refresh intervals without access after which a list is no longer refreshed
+     */
+    private static final int IDLE_INTERVALS = 6;
+
+    private static final ProjectCache instance = new ProjectCache();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ProjectCache() {
+    }
+
+    public static ProjectCache getInstance() {
+        return instance;
+    }
+
+    public static String getKey(String url, String username, String domain) {
+        return url + "|" + username + "|" + domain;
+    }
+
+    /**
+     * Get the project list, loading it synchronously only if it has never been loaded
+     *
+     * @param key  the cache key
+     * @param loader  the loader used to (re)load the project list
+     * @param refreshInterval  the number of seconds between background refreshes
+     * @return the last known project list
+     * @throws ALMClientException
+     */
+    public List<Project> get(String key, ProjectLoader loader, int refreshInterval) throws ALMClientException {
+        return get(key, loader, refreshInterval, null);
+    }
+
+    /**
+     * Get the project list, restoring it from its snapshot or else loading it synchronously
+     * if it has never been loaded
+     *
+     * @param key  the cache key
+     * @param loader  the loader used to (re)load the project list
+     * @param refreshInterval  the number of seconds between background refreshes
+     * @param snapshotDirectory  the directory of the project list snapshots, null to not keep a snapshot
+     * @return the last known project list
+     * @throws ALMClientException
+     */
+    public List<Project> get(String key, ProjectLoader loader, int refreshInterval, File snapshotDirectory) throws ALMClientException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry newEntry = new Entry(key, refreshInterval, snapshotDirectory);
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+        return entry.get(loader);
+    }
+
+    public void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            entry.cancel();
+        }
+    }
+
+    public void clear() {
+        for (String key : entries.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Loads the project list from HP ALM
+     */
+    public interface ProjectLoader {
+        List<Project> load() throws ALMClientException;
+    }
+
+    private class Entry implements Runnable {
+        private final String key;
+        private final int refreshInterval;
+        private final ProjectSnapshot snapshot;
+        private volatile List<Project> projects;
+        private volatile ProjectLoader loader;
+        private volatile long lastAccess;
+        private ScheduledFuture<?> refreshTask;
+
+        Entry(String key, int refreshInterval, File snapshotDirectory) {
+            this.key = key;
+            this.refreshInterval = refreshInterval;
+            this.snapshot = (snapshotDirectory == null ? null : new ProjectSnapshot(snapshotDirectory, key));
+        }
+
+        List<Project> get(ProjectLoader loader) throws ALMClientException {
+            this.loader = loader;
+            this.lastAccess = System.currentTimeMillis();
+            List<Project> result = projects;
+            if (result == null) {
+                synchronized (this) {
+                    if (projects == null) {
+                        List<Project> restored = (snapshot == null ? null : snapshot.load());
+                        if (restored != null) {
+                            logger.debug("Restored HP ALM project list {} from its snapshot", key);
+                            projects = Collections.unmodifiableList(restored);
+                        } else {
+                            projects = load(loader);
+                        }
+                        long delay = (restored != null ? 0 : refreshInterval);
+                        refreshTask = RefreshScheduler.getScheduler().scheduleWithFixedDelay(this, delay, refreshInterval, TimeUnit.SECONDS);
+                    }
+                    result = projects;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void run() {
+            if (System.currentTimeMillis() - lastAccess > IDLE_INTERVALS * refreshInterval * 1000L) {
+                logger.debug("HP ALM project list {} is no longer used, stopping refresh", key);
+                remove(key);
+                return;
+            }
+            try {
+                projects = load(loader);
+                logger.debug("Refreshed HP ALM project list {}", key);
+            } catch (Exception e) {
+                // keep serving the last known list
+                logger.warn("Unable to refresh HP ALM project list: " + e.getMessage());
+            }
+        }
+
+        synchronized void cancel() {
+            if (refreshTask != null) {
+                refreshTask.cancel(false);
+            }
+        }
+
+        private List<Project> load(ProjectLoader loader) throws ALMClientException {
+            List<Project> loaded = loader.load();
+            List<Project> result = (loaded == null ? Collections.<Project>emptyList() : Collections.unmodifiableList(loaded));
+            if (snapshot != null) {
+                try {
+                    snapshot.write(result);
+                } catch (IOException e) {
+                    logger.warn("Unable to save HP ALM project list snapshot: " + e.getMessage());
+                }
+            }
+            return result;
+        }
+    }
+
+}
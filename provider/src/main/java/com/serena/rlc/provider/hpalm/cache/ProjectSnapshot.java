@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import com.serena.rlc.provider.hpalm.domain.DefectCodec;
+import com.serena.rlc.provider.hpalm.domain.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On disk snapshot of a project list, so that after a restart the list is served straight
+ * away while it is refreshed from HP ALM.
+ *
+ * @author klee
+ */
+
+public class ProjectSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectSnapshot.class);
+
+    private static final byte PROJECT = 1;
+
+    private final SnapshotFile file;
+
+    /**
+     * @param directory  the snapshot directory
+     * @param key  the project cache key
+     */
+    public ProjectSnapshot(File directory, String key) {
+        this.file = new SnapshotFile(directory, "projects", key);
+    }
+
+    /**
+     * @return the projects, or null if there is no usable snapshot
+     */
+    public synchronized List<Project> load() {
+        final List<Project> projects = new ArrayList<>();
+        try {
+            boolean found = file.read(new SnapshotFile.RecordHandler() {
+                @Override
+                public void record(byte type, ByteBuffer record) {
+                    if (type == PROJECT) {
+                        Project project = new Project();
+                        project.setId(DefectCodec.readString(record));
+                        project.setName(DefectCodec.readString(record));
+                        project.setDescription(DefectCodec.readString(record));
+                        projects.add(project);
+                    }
+                }
+            });
+            return (found ? projects : null);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Discarding unreadable HP ALM project snapshot " + file.getFile() + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * @param projects  the projects to replace the snapshot with
+     * @throws IOException
+     */
+    public synchronized void write(List<Project> projects) throws IOException {
+        try (SnapshotFile.Writer writer = file.rewrite()) {
+            for (Project project : projects) {
+                DataOutput out = writer.begin();
+                DefectCodec.writeString(out, project.getId());
+                DefectCodec.writeString(out, project.getName());
+                DefectCodec.writeString(out, project.getDescription());
+                writer.end(PROJECT);
+            }
+            writer.commit();
+        }
+    }
+
+}
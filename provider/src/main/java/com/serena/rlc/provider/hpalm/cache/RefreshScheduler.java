@@ -0,0 +1,45 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared daemon scheduler that runs the background refresh of the HP ALM caches.
+ *
+ * @author klee
+ */
+
+public class RefreshScheduler {
+
+    private static final int POOL_SIZE = 2;
+
+    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(POOL_SIZE, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "hpalm-cache-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private RefreshScheduler() {
+    }
+
+    public static ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.cache;
+
+import com.serena.rlc.provider.hpalm.domain.DefectCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * File holding a snapshot of cached data as a header followed by typed, length prefixed
+ * records. A snapshot is either rewritten as a whole, through a temporary file that then
+ * replaces it, or has records appended to it. The file is read into a heap buffer rather
+ * than mapped, as a mapping that is never released keeps the file locked on Windows, and
+ * reading stops at a record that was only partly written.
+ *
+ * @author klee
+ */
+
+class SnapshotFile {
+
+    private static final int MAGIC = 0x414c4d53;
+    private static final int VERSION = 1;
+    private static final int RECORD_HEADER_SIZE = 5;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final File file;
+    private final String key;
+    // end of the last complete record read, anything after it is dropped before appending
+    private long validLength = -1;
+
+    /**
+     * @param directory  the snapshot directory
+     * @param prefix  the kind of snapshot, e.g. defects
+     * @param key  the cache key, the file is named after its hash
+     */
+    SnapshotFile(File directory, String prefix, String key) {
+        this.file = new File(directory, prefix + "-" + hash(key) + ".snapshot");
+        this.key = key;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    boolean exists() {
+        return file.isFile();
+    }
+
+    /**
+     * Read the records of the snapshot
+     *
+     * @param handler  the handler of each complete record
+     * @return false if there is no snapshot of this key
+     * @throws IOException
+     */
+    boolean read(RecordHandler handler) throws IOException {
+        if (!exists()) {
+            return false;
+        }
+        ByteBuffer buffer;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " is too large");
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+        }
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || !key.equals(DefectCodec.readString(buffer))) {
+            return false;
+        }
+        int end = buffer.position();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            buffer.position(buffer.position() + length);
+            end = buffer.position();
+            handler.record(type, record);
+        }
+        validLength = end;
+        return true;
+    }
+
+    /**
+     * Start rewriting the snapshot, it is replaced once the writer is committed
+     */
+    Writer rewrite() throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create snapshot directory " + directory);
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        Writer writer = new Writer(temporary, false);
+        writer.out.writeInt(MAGIC);
+        writer.out.writeInt(VERSION);
+        DefectCodec.writeString(writer.out, key);
+        return writer;
+    }
+
+    /**
+     * Start appending records to the existing snapshot. A partly written record left at its
+     * end is not truncated in place, the valid part is copied to a new snapshot instead.
+     */
+    Writer append() throws IOException {
+        if (validLength >= 0 && validLength < file.length()) {
+            File temporary = new File(file.getPath() + ".tmp");
+            try (FileChannel in = new RandomAccessFile(file, "r").getChannel();
+                 FileChannel out = new FileOutputStream(temporary).getChannel()) {
+                long position = 0;
+                while (position < validLength) {
+                    position += in.transferTo(position, validLength - position, out);
+                }
+                out.force(true);
+            } catch (IOException e) {
+                temporary.delete();
+                throw e;
+            }
+            replace(temporary);
+        }
+        return new Writer(null, true);
+    }
+
+    /**
+     * Replace the snapshot with a temporary file, atomically where the file system allows it
+     */
+    private void replace(File temporary) throws IOException {
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    void delete() {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Handles the records read from a snapshot
+     */
+    interface RecordHandler {
+        void record(byte type, ByteBuffer record);
+    }
+
+    /**
+     * Writes records to a snapshot, nothing written is kept unless the writer is committed
+     */
+    class Writer implements Closeable {
+        private final File temporary;
+        private final FileOutputStream stream;
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+        private final DataOutputStream recordOut = new DataOutputStream(record);
+        private final long startLength;
+        private boolean committed;
+
+        private Writer(File temporary, boolean append) throws IOException {
+            this.temporary = temporary;
+            this.startLength = (append ? file.length() : 0);
+            this.stream = new FileOutputStream(append ? file : temporary, append);
+            this.out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+        }
+
+        /**
+         * @return the output to write the next record to
+         */
+        DataOutput begin() {
+            record.reset();
+            return recordOut;
+        }
+
+        /**
+         * Write the record started by {@link #begin()}
+         */
+        void end(byte type) throws IOException {
+            out.writeByte(type);
+            out.writeInt(record.size());
+            record.writeTo(out);
+        }
+
+        void commit() throws IOException {
+            out.flush();
+            stream.getFD().sync();
+            out.close();
+            if (temporary != null) {
+                replace(temporary);
+            }
+            validLength = file.length();
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed) {
+                return;
+            }
+            out.close();
+            if (temporary != null) {
+                if (temporary.exists() && !temporary.delete()) {
+                    temporary.deleteOnExit();
+                }
+            } else {
+                // drop a partly appended record
+                try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                    truncate.setLength(startLength);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per server circuit breaker. After a number of consecutive failures (connection errors,
+ * timeouts or gateway errors) the circuit opens and requests fail fast. Once the open time
+ * has passed a single trial request is let through: if it succeeds the circuit closes,
+ * otherwise it opens again.
+ *
+ * @author klee
+ */
+
+public class ALMCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(ALMCircuitBreaker.class);
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final int DEFAULT_OPEN_TIME = 30;
+
+    private static final ConcurrentMap<String, ALMCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String url;
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile int openTime = DEFAULT_OPEN_TIME;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    private ALMCircuitBreaker(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Get the circuit breaker of a server
+     *
+     * @param url  the HP ALM server URL
+     * @return the circuit breaker
+     */
+    public static ALMCircuitBreaker getInstance(String url) {
+        ALMCircuitBreaker breaker = breakers.get(url);
+        if (breaker == null) {
+            ALMCircuitBreaker newBreaker = new ALMCircuitBreaker(url);
+            breaker = breakers.putIfAbsent(url, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * @param failureThreshold  the number of consecutive failures that opens the circuit, 0 disables the breaker
+     * @param openTime  the number of seconds the circuit stays open before a trial request
+     */
+    public void configure(int failureThreshold, int openTime) {
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+    }
+
+    /**
+     * Check whether a request may be sent, must be followed by
+     * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #recordAborted()}
+     *
+     * @throws ALMClientException if the circuit is open
+     */
+    public synchronized void acquire() throws ALMClientException {
+        if (failureThreshold <= 0 || state == State.CLOSED) {
+            return;
+        }
+        long remaining = openedAt + openTime * 1000L - System.currentTimeMillis();
+        if (state == State.OPEN && remaining <= 0) {
+            // let this request through as the trial
+            logger.debug("Sending trial request to HP ALM server {}", url);
+            state = State.HALF_OPEN;
+            return;
+        }
+        throw new ALMClientException("HP ALM server " + url + " is unavailable, requests are suspended"
+                + (remaining > 0 ? " for another " + ((remaining + 999) / 1000) + " seconds" : " until a trial request succeeds"));
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("HP ALM server {} is available again", url);
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (failureThreshold > 0 && failures >= failureThreshold && state == State.CLOSED)) {
+            if (state == State.CLOSED) {
+                logger.warn("HP ALM server {} failed {} times in a row, suspending requests for {} seconds", url, failures, openTime);
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Record that a request was not sent after all, e.g. because no pooled connection was
+     * free, so that a trial request does not hold the circuit half open
+     */
+    public synchronized void recordAborted() {
+        if (state == State.HALF_OPEN) {
+            // let the next request be the trial
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+}
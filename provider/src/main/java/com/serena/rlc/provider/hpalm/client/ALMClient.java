@@ -0,0 +1,1338 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import com.serena.rlc.provider.domain.SessionData;
+import com.serena.rlc.provider.hpalm.cache.DefectCache;
+import com.serena.rlc.provider.hpalm.domain.Defect;
+import com.serena.rlc.provider.hpalm.domain.DefectBatch;
+import com.serena.rlc.provider.hpalm.domain.DefectPage;
+import com.serena.rlc.provider.hpalm.domain.FieldBinders;
+import com.serena.rlc.provider.hpalm.domain.Project;
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import com.serena.rlc.provider.hpalm.metrics.ALMMetrics;
+import com.serena.rlc.provider.hpalm.metrics.OperationMetrics;
+import org.apache.http.*;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.params.CookiePolicy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author klee
+ */
+
+@Component
+public class ALMClient {
+    private static final Logger logger = LoggerFactory.getLogger(ALMClient.class);
+
+    public static String DEFAULT_HTTP_CONTENT_TYPE = "application/json";
+    public static Charset DEFAULT_HTTP_CHARSET = Charset.forName("UTF-8");
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10;
+    public static final int DEFAULT_READ_TIMEOUT = 60;
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    public static final int DEFAULT_RETRY_BACKOFF = 250;
+
+    /**
+     * Limits on the id list of a single batch query, to keep the request URL short
+     */
+    private static final int BATCH_MAX_IDS = 100;
+    private static final int BATCH_MAX_QUERY_LENGTH = 1500;
+
+    private static final ResponseReader<List<Project>> PROJECTS_READER = new ResponseReader<List<Project>>() {
+        @Override
+        public List<Project> read(Reader reader) throws IOException {
+            return Project.parse(reader);
+        }
+    };
+
+    // identical concurrent requests, e.g. from many users opening the same release, share one HP ALM call
+    private static final SingleFlight<DefectPage> defectQueries = new SingleFlight<>();
+    private static final SingleFlight<List<Project>> projectQueries = new SingleFlight<>();
+
+    private String almUrl;
+    private String almUsername;
+    private String almPassword;
+    private String almDomain;
+    private String useXsrf;
+    private SessionData session;
+    private int maxConnectionsPerRoute = ALMConnectionManager.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int maxConnectionsTotal = ALMConnectionManager.DEFAULT_MAX_CONNECTIONS_TOTAL;
+    private int idleConnectionTimeout = ALMConnectionManager.DEFAULT_IDLE_CONNECTION_TIMEOUT;
+    private int keepAliveTimeout = ALMConnectionManager.DEFAULT_KEEPALIVE_TIMEOUT;
+    private List<String> extraDefectFields = new ArrayList<>();
+    private int defectCacheTtl = DefectCache.DEFAULT_TTL;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private int retryBackoff = DEFAULT_RETRY_BACKOFF;
+    private int circuitBreakerThreshold = ALMCircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+    private int circuitBreakerOpenTime = ALMCircuitBreaker.DEFAULT_OPEN_TIME;
+    private int maxConcurrentRequests = ALMConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+    private int maxRequestWait = ALMConcurrencyLimiter.DEFAULT_MAX_WAIT;
+    private ALMConcurrencyLimiter.Priority priority = ALMConcurrencyLimiter.Priority.INTERACTIVE;
+    private boolean compression = true;
+    private String defectFields = null;
+    private FieldBinders<Defect> defectBinders = null;
+
+    // defects are parsed with the binders of the mapped and the extra fields
+    private final ResponseReader<DefectPage> defectPageReader = new ResponseReader<DefectPage>() {
+        @Override
+        public DefectPage read(Reader reader) throws IOException {
+            return Defect.parsePage(reader, getDefectBinders());
+        }
+    };
+
+    private final ResponseReader<Defect> defectReader = new ResponseReader<Defect>() {
+        @Override
+        public Defect read(Reader reader) throws IOException {
+            return Defect.parseSingle(reader, getDefectBinders());
+        }
+    };
+
+    private DefaultHttpClient httpClient;
+    private HttpHost httpHost = null;
+    private ALMSession almSession = null;
+
+    public ALMClient() {
+    }
+
+    public ALMClient(SessionData session, String url, String username, String password, String useXsrf, String domain) {
+        this.session = session;
+        this.almUrl = url;
+        this.almUsername = username;
+        this.almPassword = password;
+        this.almDomain = domain;
+        this.useXsrf = useXsrf;
+        this.createConnection(session, url, username, password, useXsrf, domain);
+    }
+
+    public SessionData getSession() {
+        return session;
+    }
+
+    public void setSession(SessionData session) {
+        this.session = session;
+    }
+
+    public DefaultHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public void setDefaultHttpClient(DefaultHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public ALMSession getALMSession() {
+        return almSession;
+    }
+
+    public String getALMUrl() {
+        return almUrl;
+    }
+
+    public void setALMUrl(String url) {
+        this.almUrl = url;
+    }
+
+    public String getALMUsername() {
+        return almUsername;
+    }
+
+    public void setALMUsername(String username) {
+        this.almUsername = username;
+    }
+
+    public String getALMPassword() {
+        return almPassword;
+    }
+
+    public void setALMPassword(String password) {
+        this.almPassword = password;
+    }
+
+    public String getUseXsrf() { return useXsrf; }
+
+    public void setUseXsrf(String useXsrf) { this.useXsrf = useXsrf; }
+
+    public String getALMDomain() {
+        return almDomain;
+    }
+
+    public void setALMDomain(String domain) {
+        this.almDomain = domain;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public int getDefectCacheTtl() {
+        return defectCacheTtl;
+    }
+
+    /**
+     * @param defectCacheTtl  the number of seconds a cached defect is used without revalidation, 0 disables the cache
+     */
+    public void setDefectCacheTtl(int defectCacheTtl) {
+        this.defectCacheTtl = defectCacheTtl;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout  the number of seconds to wait for a connection to HP ALM
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @param readTimeout  the number of seconds to wait for data from HP ALM
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param maxRetries  the number of times a failed GET request is retried
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public int getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    /**
+     * @param retryBackoff  the number of milliseconds to wait before the first retry, doubled for each retry
+     */
+    public void setRetryBackoff(int retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * @param circuitBreakerThreshold  the number of consecutive failures after which requests fail fast, 0 disables the circuit breaker
+     */
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public int getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    /**
+     * @param circuitBreakerOpenTime  the number of seconds requests fail fast before a trial request is sent
+     */
+    public void setCircuitBreakerOpenTime(int circuitBreakerOpenTime) {
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @param maxConcurrentRequests  the highest number of requests in flight to the server, 0 for no limit,
+     *                               capped at the maximum connections per route
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public int getMaxRequestWait() {
+        return maxRequestWait;
+    }
+
+    /**
+     * @param maxRequestWait  the number of seconds a request waits to be sent when too many are in flight
+     */
+    public void setMaxRequestWait(int maxRequestWait) {
+        this.maxRequestWait = maxRequestWait;
+    }
+
+    public ALMConcurrencyLimiter.Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @param priority  the priority of the requests of this client when too many are in flight
+     */
+    public void setPriority(ALMConcurrencyLimiter.Priority priority) {
+        this.priority = priority;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression  whether to ask HP ALM for gzip or deflate compressed responses
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public List<String> getExtraDefectFields() {
+        return extraDefectFields;
+    }
+
+    public void setExtraDefectFields(List<String> extraDefectFields) {
+        this.extraDefectFields = (extraDefectFields == null ? new ArrayList<String>() : extraDefectFields);
+        this.defectFields = null;
+        this.defectBinders = null;
+    }
+
+    public void createConnection(SessionData session, String url, String username, String password) {
+        createConnection(session, url, username, password, "true", null);
+    }
+
+    public void createConnection(SessionData session, String url, String username, String password, String useXsrf, String domain) {
+        this.session = session;
+        this.almUrl = url;
+        this.almUsername = username;
+        this.almPassword = password;
+        this.almDomain = domain;
+        this.useXsrf = useXsrf;
+
+        String[] urlParts = this.almUrl.split(":");
+        HttpHost host;
+        if (urlParts.length > 2) {
+            host = new HttpHost(urlParts[1].replaceAll("/",""), Integer.parseInt(urlParts[2]), urlParts[0]);
+        } else {
+            // the pool routes requests by port, so use the one they are actually sent to
+            host = new HttpHost(urlParts[1].replaceAll("/", ""), ALMConnectionManager.getDefaultPort(urlParts[0]), urlParts[0]);
+        }
+
+        // reuse the client (and its pooled connections) unless the server has changed
+        if (this.httpClient == null || !host.equals(this.httpHost)) {
+            this.httpHost = host;
+            ALMConnectionManager connectionManager = ALMConnectionManager.getInstance();
+            connectionManager.configure(httpHost, getMaxConnectionsPerRoute(), getMaxConnectionsTotal());
+            connectionManager.setIdleConnectionTimeout(getIdleConnectionTimeout());
+            this.httpClient = new DefaultHttpClient(connectionManager.getConnectionManager());
+            this.httpClient.setKeepAliveStrategy(connectionManager.getKeepAliveStrategy(getKeepAliveTimeout()));
+            this.httpClient.getParams().setParameter(ClientPNames.DEFAULT_HOST, httpHost);
+            // authentication cookies are managed explicitly through the shared session store
+            this.httpClient.getParams().setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.IGNORE_COOKIES);
+        }
+        HttpParams params = this.httpClient.getParams();
+        HttpConnectionParams.setConnectionTimeout(params, getConnectTimeout() * 1000);
+        HttpConnectionParams.setSoTimeout(params, getReadTimeout() * 1000);
+        // do not wait forever for a pooled connection either
+        params.setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, getConnectTimeout() * 1000L);
+        getCircuitBreaker().configure(getCircuitBreakerThreshold(), getCircuitBreakerOpenTime());
+        // requests over the pool size would queue for a connection, out of priority order
+        int maxConcurrentRequests = getMaxConcurrentRequests();
+        if (maxConcurrentRequests > 0 && getMaxConnectionsPerRoute() > 0) {
+            maxConcurrentRequests = Math.min(maxConcurrentRequests, getMaxConnectionsPerRoute());
+        }
+        getConcurrencyLimiter().configure(maxConcurrentRequests);
+
+        // reuse an existing authenticated session if there is one
+        this.almSession = ALMSessionStore.getInstance().getSession(url, username, domain);
+        try {
+            synchronized (almSession) {
+                if (!almSession.isAuthenticated()) {
+                    login(session);
+                }
+            }
+        } catch (ALMClientException ex) {
+            logger.error(ex.getLocalizedMessage());
+        }
+
+    }
+
+    /**
+     * Get a list of defects
+     *
+     * @param projectId  the id of the project, e.g. Demo
+     * @param statusFilters  list of statuses to filter for, e.g. New,Open
+     * @param titleFilter  the title (name) of the defect to search for
+     * @param resultLimit  the number of defects to return
+     * @return  a list of defects
+     * @throws ALMClientException
+     */
+    public List<Defect> getDefects(String projectId, List<String> statusFilters, String titleFilter, Integer resultLimit) throws ALMClientException {
+        return getDefects(projectId, statusFilters, titleFilter, 0, resultLimit).getDefects();
+    }
+
+    /**
+     * Get a page of defects
+     *
+     * @param projectId  the id of the project, e.g. Demo
+     * @param statusFilters  list of statuses to filter for, e.g. New,Open
+     * @param titleFilter  the title (name) of the defect to search for
+     * @param startIndex  the zero based index of the first defect to return
+     * @param pageSize  the number of defects to return
+     * @return  the page of defects and the total number of matching defects
+     * @throws ALMClientException
+     */
+    public DefectPage getDefects(String projectId, List<String> statusFilters, String titleFilter, int startIndex, Integer pageSize) throws ALMClientException {
+        logger.debug("Using HP ALM URL: " + this.almUrl);
+        logger.debug("Using HP ALM Credential: " + this.almUsername);
+        logger.debug("Using HP ALM Domain: " + getALMDomain());
+        logger.debug("Using HP ALM Status Filter: " + (statusFilters != null && !statusFilters.isEmpty() ? statusFilters.toString() : "none defined"));
+        logger.debug("Using HP ALM Title Filter: " + (titleFilter != null && !titleFilter.isEmpty() ? titleFilter : "none defined"));
+        logger.debug("Returning results from: " + startIndex);
+        logger.debug("Limiting results to: " + pageSize);
+
+        ALMQuery query = new ALMQuery()
+                .whereContains("name", titleFilter)
+                .whereAny("status", statusFilters);
+        DefectPage defects = queryDefects(projectId, query, startIndex, pageSize);
+        if (getDefectCacheTtl() > 0) {
+            DefectCache cache = DefectCache.getInstance();
+            for (Defect defect : defects.getDefects()) {
+                cache.put(DefectCache.getKey(getALMUrl(), getALMUsername(), getALMDomain(), projectId, defect.getId()), defect);
+            }
+        }
+        return defects;
+    }
+
+    /**
+     * Get a page of defects that have been modified since a point in time, ordered by id
+     *
+     * @param projectId  the id of the project, e.g. Demo
+     * @param modifiedSince  the "last-modified" time to return defects from, or null for all defects
+     * @param startIndex  the zero based index of the first defect to return
+     * @param pageSize  the number of defects to return
+     * @return  the page of defects and the total number of matching defects
+     * @throws ALMClientException
+     */
+    public DefectPage getDefectsModifiedSince(String projectId, String modifiedSince, int startIndex, Integer pageSize) throws ALMClientException {
+        logger.debug("Using HP ALM Domain: " + getALMDomain());
+        logger.debug("Using HP ALM Modified Since: " + (modifiedSince != null ? modifiedSince : "none defined"));
+
+        ALMQuery query = new ALMQuery().whereAtLeast("last-modified", modifiedSince);
+        return queryDefects(projectId, query, startIndex, pageSize);
+    }
+
+    private DefectPage queryDefects(String projectId, ALMQuery query, int startIndex, Integer pageSize) throws ALMClientException {
+        String defAPI = "/qcbin/rest/domains/" + getALMDomain() + "/projects/" + projectId + "/defects";
+
+        logger.debug("Using HP ALM Query:" + query.getFilter());
+        // order by id so that consecutive pages are stable
+        query.orderBy("id", true)
+                .fields(getDefectFields())
+                .page(startIndex, (pageSize == null ? 0 : pageSize));
+        String defParams = query.toParameters();
+
+        logger.debug("Retrieving HP ALM Defects");
+        final String defPath = defAPI + defParams;
+        DefectPage defects = defectQueries.execute(getRequestKey(defPath), new Callable<DefectPage>() {
+            @Override
+            public DefectPage call() throws ALMClientException {
+                return processGet(session, defPath, defectPageReader);
+            }
+        });
+        // callers may share the page, so each gets its own copy of the list
+        return new DefectPage(new ArrayList<>(defects.getDefects()), Math.max(0, startIndex), defects.getTotalResults());
+    }
+
+    /**
+     * Get a specfic defect
+     *
+     * @param projectId  the id of the project, e.g. Demo
+     * @param defectId  the id of the defect, e.g. 1
+     * @return the defect if found
+     * @throws ALMClientException
+     */
+    public Defect getDefect(String projectId, String defectId) throws ALMClientException {
+        logger.debug("Using HP ALM URL: " + this.almUrl);
+        logger.debug("Using HP ALM Credential: " + this.almUsername);
+        logger.debug("Using HP ALM Domain: " + getALMDomain());
+        logger.debug("Using HP ALM Defect Id: " + defectId);
+
+        DefectCache cache = (getDefectCacheTtl() > 0 ? DefectCache.getInstance() : null);
+        String cacheKey = DefectCache.getKey(getALMUrl(), getALMUsername(), getALMDomain(), projectId, defectId);
+        if (cache != null) {
+            DefectCache.CachedDefect entry = cache.get(cacheKey);
+            if (entry != null) {
+                if (!entry.isExpired(getDefectCacheTtl())) {
+                    cache.recordHit();
+                    return entry.getDefect();
+                }
+
+                // the batch query counts the expired defects as misses itself
+                Defect refreshed = refreshExpiredDefects(projectId, defectId);
+                if (refreshed != null) {
+                    return refreshed;
+                }
+
+                // only refetch the defect if it has changed since it was cached
+                String lastModified = getDefectLastModified(projectId, defectId);
+                if (lastModified != null && lastModified.equals(entry.getDefect().getLastUpdated())) {
+                    logger.debug("Revalidated cached HP ALM Defect " + defectId);
+                    entry.revalidated();
+                    cache.recordRevalidation();
+                    cache.recordHit();
+                    return entry.getDefect();
+                }
+            }
+            cache.recordMiss();
+        }
+
+        logger.debug("Retrieving HP ALM Defect");
+        Defect defect = processGet(session, "/qcbin/rest/domains/" + getALMDomain() + "/projects/" + projectId + "/defects/" + defectId
+                + "?fields=" + ALMQuery.encode(getDefectFields()), defectReader);
+        if (cache != null && defect != null) {
+            cache.put(cacheKey, defect);
+        }
+        return defect;
+    }
+
+    /**
+     * Get a batch of defects, issuing one query per project and chunk of ids rather than
+     * one request per defect. Defects that are cached and current are not requested again.
+     *
+     * @param defectKeys  the defects to get as "project:id", e.g. Demo:1
+     * @return the defects found in the order they were requested, and the keys not found
+     * @throws ALMClientException
+     */
+    public DefectBatch getDefectBatch(List<String> defectKeys) throws ALMClientException {
+        logger.debug("Using HP ALM Domain: " + getALMDomain());
+        logger.debug("Retrieving HP ALM Defects: " + defectKeys);
+
+        DefectCache cache = (getDefectCacheTtl() > 0 ? DefectCache.getInstance() : null);
+        Map<String, Defect> found = new HashMap<>();
+        Map<String, List<String>> idsByProject = new LinkedHashMap<>();
+        for (String defectKey : defectKeys) {
+            int separator = (defectKey == null ? -1 : defectKey.indexOf(':'));
+            if (separator < 0 || found.containsKey(defectKey)) {
+                continue;
+            }
+            String projectId = defectKey.substring(0, separator);
+            String defectId = defectKey.substring(separator + 1);
+            if (cache != null) {
+                DefectCache.CachedDefect entry = cache.get(DefectCache.getKey(getALMUrl(), getALMUsername(), getALMDomain(), projectId, defectId));
+                if (entry != null && !entry.isExpired(getDefectCacheTtl())) {
+                    cache.recordHit();
+                    found.put(defectKey, entry.getDefect());
+                    continue;
+                }
+                cache.recordMiss();
+            }
+            List<String> ids = idsByProject.get(projectId);
+            if (ids == null) {
+                ids = new ArrayList<>();
+                idsByProject.put(projectId, ids);
+            }
+            if (!ids.contains(defectId)) {
+                ids.add(defectId);
+            }
+        }
+
+        for (Map.Entry<String, List<String>> project : idsByProject.entrySet()) {
+            String projectId = project.getKey();
+            List<String> ids = project.getValue();
+            int start = 0;
+            while (start < ids.size()) {
+                // build the largest chunk that fits the query limits
+                int queryLength = 0;
+                int end = start;
+                while (end < ids.size() && end - start < BATCH_MAX_IDS
+                        && (end == start || queryLength + ALMQuery.quote(ids.get(end)).length() + 4 <= BATCH_MAX_QUERY_LENGTH)) {
+                    queryLength += ALMQuery.quote(ids.get(end)).length() + (end > start ? 4 : 0);
+                    end++;
+                }
+
+                ALMQuery query = new ALMQuery().whereAny("id", ids.subList(start, end));
+                DefectPage page = queryDefects(projectId, query, 0, end - start);
+                for (Defect defect : page.getDefects()) {
+                    found.put(projectId + ":" + defect.getId(), defect);
+                    if (cache != null) {
+                        cache.put(DefectCache.getKey(getALMUrl(), getALMUsername(), getALMDomain(), projectId, defect.getId()), defect);
+                    }
+                }
+                start = end;
+            }
+        }
+
+        DefectBatch batch = new DefectBatch();
+        for (String defectKey : defectKeys) {
+            Defect defect = found.get(defectKey);
+            if (defect != null) {
+                batch.addDefect(defectKey, defect);
+            } else {
+                batch.addMissing(defectKey);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Refresh an expired cached defect together with the other expired cached defects of
+     * its project, in one batch query rather than revalidating each of them when it is
+     * next used
+     *
+     * @return the defect, or null if no other defect of the project has expired or the defect was not found
+     * @throws ALMClientException
+     */
+    private Defect refreshExpiredDefects(String projectId, String defectId) throws ALMClientException {
+        String prefix = DefectCache.getKey(getALMUrl(), getALMUsername(), getALMDomain(), projectId, "");
+        List<String> expiredKeys = DefectCache.getInstance().getExpiredKeys(prefix, getDefectCacheTtl(), BATCH_MAX_IDS);
+        if (expiredKeys.size() < 2) {
+            return null;
+        }
+
+        String defectKey = projectId + ":" + defectId;
+        List<String> defectKeys = new ArrayList<>();
+        defectKeys.add(defectKey);
+        for (String expiredKey : expiredKeys) {
+            String expiredId = expiredKey.substring(prefix.length());
+            if (!expiredId.equals(defectId)) {
+                defectKeys.add(projectId + ":" + expiredId);
+            }
+        }
+        logger.debug("Refreshing {} expired HP ALM Defects of project {}", defectKeys.size(), projectId);
+        DefectBatch batch = getDefectBatch(defectKeys);
+        if (!batch.getKeys().isEmpty() && batch.getKeys().get(0).equals(defectKey)) {
+            return batch.getDefects().get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Get the last modification time of a defect
+     *
+     * @param projectId  the id of the project, e.g. Demo
+     * @param defectId  the id of the defect, e.g. 1
+     * @return the "last-modified" field of the defect
+     * @throws ALMClientException
+     */
+    public String getDefectLastModified(String projectId, String defectId) throws ALMClientException {
+        logger.debug("Retrieving HP ALM Defect " + defectId + " last modification time");
+        Defect defect = processGet(session, "/qcbin/rest/domains/" + getALMDomain() + "/projects/" + projectId + "/defects/" + defectId
+                + "?fields=last-modified", defectReader);
+        return (defect == null ? null : defect.getLastUpdated());
+    }
+
+    /**
+     * Get a list of projects in the domain
+     * @return a list of projects
+     * @throws ALMClientException
+     */
+    public List<Project> getProjects() throws ALMClientException {
+        logger.debug("Using HP ALM URL: " + this.almUrl);
+        logger.debug("Using HP ALM Credential: " + this.almUsername);
+        logger.debug("Using HP ALM Domain: " + this.almDomain);
+
+        logger.debug("Retrieving HP ALM Projects");
+        final String projPath = "/qcbin/rest/domains/" + getALMDomain() + "/projects";
+        List<Project> projects = projectQueries.execute(getRequestKey(projPath), new Callable<List<Project>>() {
+            @Override
+            public List<Project> call() throws ALMClientException {
+                return processGet(session, projPath, PROJECTS_READER);
+            }
+        });
+        return new ArrayList<>(projects);
+    }
+
+    /**
+     * @return the number of defect queries that shared the result of an identical in-flight query
+     */
+    public static long getCoalescedDefectQueries() {
+        return defectQueries.getShared();
+    }
+
+    /**
+     * @return the number of project queries that shared the result of an identical in-flight query
+     */
+    public static long getCoalescedProjectQueries() {
+        return projectQueries.getShared();
+    }
+
+    /**
+     * Get a page of defects without blocking the calling thread
+     *
+     * @see #getDefects(String, List, String, int, Integer)
+     * @return a future completed with the page of defects, or exceptionally with an {@link ALMClientException}
+     */
+    public CompletableFuture<DefectPage> getDefectsAsync(final String projectId, final List<String> statusFilters, final String titleFilter,
+                                                         final int startIndex, final Integer pageSize) {
+        return ALMExecutor.getInstance().submit(new Callable<DefectPage>() {
+            @Override
+            public DefectPage call() throws ALMClientException {
+                return getDefects(projectId, statusFilters, titleFilter, startIndex, pageSize);
+            }
+        });
+    }
+
+    /**
+     * Get a specific defect without blocking the calling thread
+     *
+     * @see #getDefect(String, String)
+     * @return a future completed with the defect, or exceptionally with an {@link ALMClientException}
+     */
+    public CompletableFuture<Defect> getDefectAsync(final String projectId, final String defectId) {
+        return ALMExecutor.getInstance().submit(new Callable<Defect>() {
+            @Override
+            public Defect call() throws ALMClientException {
+                return getDefect(projectId, defectId);
+            }
+        });
+    }
+
+    /**
+     * Get the list of projects in the domain without blocking the calling thread
+     *
+     * @see #getProjects()
+     * @return a future completed with the projects, or exceptionally with an {@link ALMClientException}
+     */
+    public CompletableFuture<List<Project>> getProjectsAsync() {
+        return ALMExecutor.getInstance().submit(new Callable<List<Project>>() {
+            @Override
+            public List<Project> call() throws ALMClientException {
+                return getProjects();
+            }
+        });
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Check whether the user is currently authenticated
+     *
+     * @param session
+     * @return true if the use is authentication else false
+     * @throws com.serena.rlc.provider.hpalm.exception.ALMClientException
+     */
+    protected boolean isAuthenticated(SessionData session) throws ALMClientException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("http.isAuthenticated");
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean authenticated = checkAuthenticated();
+            success = true;
+            return authenticated;
+        } finally {
+            metrics.record(started, success);
+        }
+    }
+
+    private boolean checkAuthenticated() throws ALMClientException {
+        String uri = getALMUrl() + "/rest/is-authenticated";
+
+        logger.debug("Start executing HP ALM request to url=\"{}\"", uri);
+
+        HttpGet authRequest = new HttpGet(uri);
+        addSessionHeaders(authRequest);
+        authRequest.addHeader(HttpHeaders.CONTENT_TYPE, "application/xml");
+        authRequest.addHeader(HttpHeaders.ACCEPT, "application/xml");
+
+        try {
+            HttpResponse response = getHttpClient().execute(authRequest);
+            HttpEntity responseEntity = response.getEntity();
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_OK) {
+                EntityUtils.consume(responseEntity);
+                return false;
+            } else {
+                EntityUtils.consume(responseEntity);
+                return true;
+            }
+
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            throw new ALMClientException("Server not available", e);
+        }
+    }
+
+    /**
+     * Execute a login request
+     *
+     * @param session
+     * @throws com.serena.rlc.provider.hpalm.exception.ALMClientException
+     */
+    protected void login(SessionData session) throws ALMClientException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("http.login");
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            executeLogin();
+            success = true;
+            ALMMetrics.getInstance().recordLogin();
+        } finally {
+            metrics.record(started, success);
+        }
+    }
+
+    private void executeLogin() throws ALMClientException {
+        final String uri = getALMUrl() + "/qcbin/authentication-point/authenticate";
+
+        logger.debug("Start executing HP ALM Login request to url=\"{}\"", uri);
+
+        final ALMSession almSession = getALMSession();
+        almSession.invalidate();
+
+        try {
+            HttpResponse response = executeWithRetry(uri, new RequestFactory() {
+                @Override
+                public HttpUriRequest create() {
+                    HttpPost authRequest = new HttpPost(uri);
+                    UsernamePasswordCredentials creds = new UsernamePasswordCredentials(getALMUsername(), getALMPassword());
+                    authRequest.addHeader(BasicScheme.authenticate(creds, "US-ASCII", false));
+                    authRequest.addHeader(HttpHeaders.CONTENT_TYPE, "application/xml");
+                    authRequest.addHeader(HttpHeaders.ACCEPT, "application/xml");
+                    authRequest.addHeader(HttpHeaders.CONNECTION, "keep-alive");
+                    return authRequest;
+                }
+            }, null);
+            try {
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode != HttpStatus.SC_OK) {
+                    throw createHttpError(response);
+                }
+
+                // keep every cookie, the session may depend on more than the SSO token
+                for (Header header : response.getHeaders("Set-Cookie")) {
+                    almSession.setCookie(getCookie(header));
+                }
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+
+            if (isXsrfEnabled()) {
+                final String sessionUri = getALMUrl() + "/qcbin/rest/site-session";
+                response = executeWithRetry(sessionUri, new RequestFactory() {
+                    @Override
+                    public HttpUriRequest create() {
+                        HttpPost sessionpost = new HttpPost(sessionUri);
+                        sessionpost.addHeader("Cookie", almSession.getCookieHeader());
+                        return sessionpost;
+                    }
+                }, null);
+                try {
+                    int statusCode = response.getStatusLine().getStatusCode();
+                    if (statusCode < 200 || statusCode >= 300) {
+                        // without the site session the XSRF token is missing and every request is rejected
+                        almSession.invalidate();
+                        throw createHttpError(response);
+                    }
+
+                    for (Header header : response.getHeaders("Set-Cookie")) {
+                        almSession.setCookie(getCookie(header));
+                    }
+                } finally {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                }
+            }
+
+        } catch (IOException e) {
+            almSession.invalidate();
+            logger.error(e.getMessage(), e);
+            throw new ALMClientException("Server not available", e);
+        }
+
+        almSession.authenticated();
+        logger.debug("Logged in to HP ALM session {}", almSession.getKey());
+    }
+
+    /**
+     * Re-authenticate after HP ALM has rejected the session, unless another caller
+     * already did so since the session was used
+     *
+     * @param session
+     * @param rejectedGeneration  the session generation that was rejected
+     * @throws com.serena.rlc.provider.hpalm.exception.ALMClientException
+     */
+    protected void reauthenticate(SessionData session, int rejectedGeneration) throws ALMClientException {
+        ALMSession almSession = getALMSession();
+        synchronized (almSession) {
+            if (almSession.getGeneration() == rejectedGeneration || !almSession.isAuthenticated()) {
+                logger.debug("HP ALM session {} has been rejected, logging in again", almSession.getKey());
+                login(session);
+            }
+        }
+    }
+
+    /**
+     * Execute a get request and stream the response body into a reader
+     *
+     * @param path the url path to execute get for
+     * @param responseReader the reader to consume the response body
+     * @return the result of the response reader
+     * @throws com.serena.rlc.provider.hpalm.exception.ALMClientException
+     */
+    protected <T> T processGet(SessionData session, String path, ResponseReader<T> responseReader) throws ALMClientException {
+        String uri = getALMUrl() + path;
+        T result;
+        HttpResponse response = null;
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation(getEndpoint(path));
+        long started = System.nanoTime();
+        boolean success = false;
+        ALMConcurrencyLimiter.Permit permit = getConcurrencyLimiter().acquire(getPriority(), getEndpoint(path), getMaxRequestWait());
+
+        try {
+            response = executeGet(session, path, permit);
+            HttpEntity entity = response.getEntity();
+            Reader reader = new InputStreamReader(entity.getContent(), getCharset(entity));
+            result = responseReader.read(reader);
+            success = true;
+        } catch (IOException e) {
+            permit.drop();
+            logger.error(e.getMessage(), e);
+            throw new ALMClientException("Server not available", e);
+        } finally {
+            // make sure the connection is released back to the pool
+            if (response != null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+            permit.release(success);
+            metrics.record(started, success);
+        }
+
+        logger.debug("End executing HP ALM GET request to url=\"{}\"", uri);
+
+        return result;
+    }
+
+    /**
+     * Execute a get request, re-authenticating once if the session has expired
+     *
+     * @param path the url path to execute get for
+     * @param permit the concurrency limiter permit of the request
+     * @return the successful response, its entity must be consumed by the caller
+     * @throws IOException
+     * @throws com.serena.rlc.provider.hpalm.exception.ALMClientException
+     */
+    private HttpResponse executeGet(SessionData session, String path, ALMConcurrencyLimiter.Permit permit) throws IOException, ALMClientException {
+        String uri = getALMUrl() + path;
+
+        logger.debug("Start executing HP ALM GET request to url=\"{}\"", path);
+
+        int generation = getALMSession().getGeneration();
+        HttpResponse response = executeWithRetry(uri, permit);
+        if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+            // the session has expired, log in again once and retry
+            EntityUtils.consumeQuietly(response.getEntity());
+            reauthenticate(session, generation);
+            response = executeWithRetry(uri, permit);
+        }
+        if (response.getEntity() != null) {
+            // count the bytes as received, before they are decompressed
+            response.setEntity(DecodingEntity.decode(new MeteredEntity(response.getEntity())));
+        }
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+            try {
+                throw createHttpError(response);
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Execute a get request through the circuit breaker, see {@link #executeWithRetry(String, RequestFactory, ALMConcurrencyLimiter.Permit)}
+     */
+    private HttpResponse executeWithRetry(final String uri, ALMConcurrencyLimiter.Permit permit) throws IOException, ALMClientException {
+        return executeWithRetry(uri, new RequestFactory() {
+            @Override
+            public HttpUriRequest create() {
+                return createGetRequest(uri);
+            }
+        }, permit);
+    }
+
+    /**
+     * Execute a request through the circuit breaker, retrying connection failures,
+     * timeouts and gateway errors with a jittered exponential backoff. Only requests that
+     * can safely be repeated are executed this way: GET requests and the login requests,
+     * which simply start a new session.
+     *
+     * @param uri the url of the request
+     * @param requestFactory creates the request of each attempt
+     * @param permit the concurrency limiter permit, dropped on failures caused by the load on the server, or null
+     * @return the response, its entity must be consumed by the caller
+     * @throws IOException if the last attempt failed
+     * @throws ALMClientException if the circuit breaker is open
+     */
+    private HttpResponse executeWithRetry(String uri, RequestFactory requestFactory, ALMConcurrencyLimiter.Permit permit)
+            throws IOException, ALMClientException {
+        ALMCircuitBreaker breaker = getCircuitBreaker();
+        for (int attempt = 0; ; attempt++) {
+            breaker.acquire();
+            HttpResponse response;
+            try {
+                response = getHttpClient().execute(requestFactory.create());
+            } catch (ConnectionPoolTimeoutException e) {
+                // no pooled connection was free, the server itself has not failed
+                breaker.recordAborted();
+                throw new ALMClientException("Timed out waiting for a free connection to HP ALM server " + getALMUrl(), e);
+            } catch (IOException e) {
+                breaker.recordFailure();
+                if (permit != null) {
+                    permit.drop();
+                }
+                if (attempt >= getMaxRetries()) {
+                    throw e;
+                }
+                logger.debug("HP ALM request to url=\"{}\" failed: {}, retrying", uri, e.getMessage());
+                backoff(attempt);
+                continue;
+            } catch (RuntimeException e) {
+                breaker.recordFailure();
+                throw e;
+            }
+
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == HttpStatus.SC_BAD_GATEWAY || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE
+                    || statusCode == HttpStatus.SC_GATEWAY_TIMEOUT) {
+                breaker.recordFailure();
+                if (permit != null) {
+                    permit.drop();
+                }
+                if (attempt < getMaxRetries()) {
+                    logger.debug("HP ALM request to url=\"{}\" returned {}, retrying", uri, statusCode);
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    backoff(attempt);
+                    continue;
+                }
+            } else {
+                breaker.recordSuccess();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Creates the request of each attempt of a retried request
+     */
+    private interface RequestFactory {
+        HttpUriRequest create();
+    }
+
+    /**
+     * Wait before a retry, for a random time between half and all of the backoff of the attempt
+     */
+    private void backoff(int attempt) throws ALMClientException {
+        long backoff = (long) getRetryBackoff() << Math.min(attempt, 10);
+        if (backoff <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ALMClientException("Interrupted while waiting to retry HP ALM request", e);
+        }
+    }
+
+    private ALMCircuitBreaker getCircuitBreaker() {
+        return ALMCircuitBreaker.getInstance(getALMUrl());
+    }
+
+    private ALMConcurrencyLimiter getConcurrencyLimiter() {
+        return ALMConcurrencyLimiter.getInstance(getALMUrl());
+    }
+
+    /**
+     * Get the name under which requests to a REST resource are measured
+     *
+     * @param path the url path of the request
+     * @return the operation name, e.g. http.defects
+     */
+    private static String getEndpoint(String path) {
+        int query = path.indexOf('?');
+        String resource = (query < 0 ? path : path.substring(0, query));
+        if (resource.endsWith("/defects")) {
+            return "http.defects";
+        }
+        if (resource.contains("/defects/")) {
+            return "http.defect";
+        }
+        if (resource.endsWith("/projects")) {
+            return "http.projects";
+        }
+        return "http.other";
+    }
+
+    /**
+     * Get the charset of a response entity, defaulting to UTF-8 as HP ALM returns JSON
+     *
+     * @param entity the response entity
+     * @return the charset
+     */
+    private static Charset getCharset(HttpEntity entity) {
+        try {
+            ContentType contentType = ContentType.get(entity);
+            if (contentType != null && contentType.getCharset() != null) {
+                return contentType.getCharset();
+            }
+        } catch (ParseException | UnsupportedCharsetException e) {
+            logger.debug("Unable to determine response charset: " + e.getMessage());
+        }
+        return DEFAULT_HTTP_CHARSET;
+    }
+
+    /**
+     * Get the comma separated list of defect fields to request from HP ALM, i.e. the fields
+     * that are mapped onto a {@link Defect} plus any configured extra fields
+     *
+     * @return the fields parameter
+     */
+    protected String getDefectFields() {
+        if (defectFields == null) {
+            StringBuilder sb = new StringBuilder(256);
+            List<String> fields = new ArrayList<>(Defect.MAPPED_FIELDS);
+            for (String field : extraDefectFields) {
+                if (!fields.contains(field)) {
+                    fields.add(field);
+                }
+            }
+            for (String field : fields) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(field);
+            }
+            defectFields = sb.toString();
+        }
+        return defectFields;
+    }
+
+    /**
+     * @return the binders of the fields returned for {@link #getDefectFields()}
+     */
+    protected FieldBinders<Defect> getDefectBinders() {
+        if (defectBinders == null) {
+            defectBinders = Defect.getBinders(extraDefectFields);
+        }
+        return defectBinders;
+    }
+
+    /**
+     * Get the key identifying a request, results are only shared between callers using the same
+     * server and credentials
+     */
+    private String getRequestKey(String path) {
+        return getALMUrl() + "|" + getALMUsername() + "|" + getALMDomain() + "|" + path;
+    }
+
+    private HttpGet createGetRequest(String uri) {
+        HttpGet getRequest = new HttpGet(uri);
+        addSessionHeaders(getRequest);
+        getRequest.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        getRequest.addHeader(HttpHeaders.ACCEPT, "application/json,application/xml");
+        if (isCompression()) {
+            getRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip,deflate");
+        }
+        return getRequest;
+    }
+
+    private void addSessionHeaders(HttpRequest request) {
+        ALMSession almSession = getALMSession();
+        if (almSession != null && almSession.isAuthenticated()) {
+            request.addHeader("Cookie", almSession.getCookieHeader());
+            if (isXsrfEnabled() && almSession.getXsrfToken() != null) {
+                request.addHeader("X-XSRF-TOKEN", almSession.getXsrfToken());
+            }
+        }
+    }
+
+    private boolean isXsrfEnabled() {
+        return "true".equalsIgnoreCase(getUseXsrf());
+    }
+
+    /**
+     * Get the "name=value" part of a Set-Cookie header
+     *
+     * @param header  the Set-Cookie header
+     * @return the cookie
+     */
+    private static String getCookie(Header header) {
+        String value = header.getValue();
+        int end = value.indexOf(';');
+        return (end < 0 ? value : value.substring(0, end)).trim();
+    }
+
+    /**
+     * Encode a URI path
+     *
+     * @param path
+     * @return
+     */
+    private String encodePath(String path) {
+        String result;
+        URI uri;
+        try {
+            uri = new URI(null, null, path, null);
+            result = uri.toASCIIString();
+        } catch (Exception e) {
+            result = path;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an ALM Client specific Client Exception
+     * @param response  the exception to throw
+     * @return
+     */
+    private ALMClientException createHttpError(HttpResponse response) {
+        String message;
+        try {
+            StatusLine statusLine = response.getStatusLine();
+            String responsePayload = (response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), DEFAULT_HTTP_CHARSET));
+
+            message = String.format(" request not successful: %d %s. Reason: %s", statusLine.getStatusCode(), statusLine.getReasonPhrase(), responsePayload);
+
+            logger.debug(message);
+
+            if (new Integer(HttpStatus.SC_UNAUTHORIZED).equals(statusLine.getStatusCode())) {
+                return new ALMClientException("Invalid credentials provided.");
+            } else if (new Integer(HttpStatus.SC_NOT_FOUND).equals(statusLine.getStatusCode())) {
+                return new ALMClientException("HP ALM: Request URL not found.");
+            } else if (new Integer(HttpStatus.SC_BAD_REQUEST).equals(statusLine.getStatusCode())) {
+                return new ALMClientException("HP ALM: Bad request. " + responsePayload);
+            }
+        } catch (IOException | ParseException e) {
+            return new ALMClientException("HP ALM: Can't read response");
+        }
+
+        return new ALMClientException(message);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Testing API
+    static public void main(String[] args) {
+        ALMClient alm = new ALMClient(null, "http://40.76.28.141:8080", "admin1", "adminpw", "true", "DEFAULT");
+
+        String firstProj = "";
+        String firstDef = "";
+
+        System.out.println("Checking if user is authenticated");
+        try {
+            if (alm.isAuthenticated(null)) {
+                System.out.println("User is authenticated");
+            } else {
+                System.out.println("User is not authenticated");
+            }
+        } catch (Exception ex) {
+            System.out.println(ex.getLocalizedMessage());
+        }
+
+        System.out.println("Retrieving HP ALM Projects...");
+        List<Project> projects = null;
+        try {
+            projects = alm.getProjects();
+            for (Project p : projects) {
+                if (firstProj.length() == 0) firstProj = p.getName();
+                System.out.println("Found Project " + p.getName());
+            }
+        } catch (ALMClientException e) {
+            System.out.print(e.toString());
+        }
+
+        // default statuses: Closed,Fixed,New,Open,Rejected,Reopen
+        List<String> statuses = new ArrayList<String>();
+        statuses.add("New");
+        statuses.add("Open");
+        for (Project project : projects) {
+            System.out.println("Retrieving defects for project " + project.getName());
+            List<Defect> defects = null;
+            try {
+                defects = alm.getDefects(project.getName(), statuses , "first", 2);
+                for (Defect d: defects) {
+                    if (firstDef.length() == 0) firstDef = d.getId();
+                    System.out.println("Found Defect " + d.getName());
+                }
+            } catch (ALMClientException e){
+                System.out.print(e.toString());
+            }
+        }
+
+        System.out.println("Retrieving Defect " + firstDef + " for Project " + firstProj + "...");
+        try {
+            Defect d = alm.getDefect(firstProj, firstDef);
+            System.out.println("Found Defect " + d.getId());
+            System.out.println("Name: " + d.getName());
+            System.out.println("Status: " + d.getStatus());
+            System.out.println("Severity: " + d.getSeverity());
+            System.out.println("Description: " + d.getDescription());
+        } catch (ALMClientException e) {
+            System.out.print(e.toString());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+import com.serena.rlc.provider.hpalm.metrics.ALMMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per server bulkhead that limits the number of requests in flight to HP ALM. The limit
+ * adapts to the server (AIMD): it grows by one for every limit's worth of requests that
+ * complete in normal time, and is cut back when requests time out, fail with a gateway
+ * error or take much longer than usual for their endpoint.
+ *
+ * Requests over the limit wait, for a bounded time, in one of two queues: interactive
+ * requests (e.g. getting a single defect) always go before bulk requests (searches and
+ * background synchronization).
+ *
+ * @author klee
+ */
+
+public class ALMConcurrencyLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(ALMConcurrencyLimiter.class);
+
+    /**
+     * Requests over the connection pool size would wait in the pool instead, out of priority order
+     */
+    public static final int DEFAULT_MAX_LIMIT = ALMConnectionManager.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    public static final int DEFAULT_MAX_WAIT = 10;
+    public static final int MAX_QUEUED_REQUESTS = 1000;
+
+    private static final int MIN_LIMIT = 1;
+    private static final int INITIAL_LIMIT = 8;
+    private static final double DROP_BACKOFF_RATIO = 0.75;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private static final ConcurrentMap<String, ALMConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public enum Priority { INTERACTIVE, BULK }
+
+    private final String url;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition interactiveTurn = lock.newCondition();
+    private final Condition bulkTurn = lock.newCondition();
+    // usual latency in nanoseconds of each endpoint, guarded by lock
+    private final Map<String, Double> baselines = new HashMap<>();
+    private int maxLimit = DEFAULT_MAX_LIMIT;
+    private double limit = INITIAL_LIMIT;
+    private int inFlight;
+    private int interactiveWaiting;
+    private int bulkWaiting;
+    private long lastDecrease;
+
+    private ALMConcurrencyLimiter(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Get the concurrency limiter of a server
+     *
+     * @param url  the HP ALM server URL
+     * @return the concurrency limiter
+     */
+    public static ALMConcurrencyLimiter getInstance(String url) {
+        ALMConcurrencyLimiter limiter = limiters.get(url);
+        if (limiter == null) {
+            ALMConcurrencyLimiter newLimiter = new ALMConcurrencyLimiter(url);
+            limiter = limiters.putIfAbsent(url, newLimiter);
+            if (limiter == null) {
+                limiter = newLimiter;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * @param maxLimit  the highest number of requests that may be in flight, 0 disables the limiter
+     */
+    public void configure(int maxLimit) {
+        lock.lock();
+        try {
+            if (maxLimit == this.maxLimit) {
+                return;
+            }
+            this.maxLimit = maxLimit;
+            if (maxLimit > 0) {
+                limit = Math.min(limit, maxLimit);
+            }
+            signalWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for a request to be allowed, the permit must be released once the response has
+     * been read
+     *
+     * @param priority  the priority of the request
+     * @param endpoint  the endpoint of the request, latency is compared between requests to the same endpoint
+     * @param maxWait  the number of seconds to wait before giving up
+     * @return the permit
+     * @throws ALMClientException if the request could not be started within the wait time
+     */
+    public Permit acquire(Priority priority, String endpoint, int maxWait) throws ALMClientException {
+        lock.lock();
+        try {
+            if (maxLimit <= 0) {
+                return new Permit(null, endpoint);
+            }
+            if (!canStart(priority)) {
+                await(priority, maxWait);
+            }
+            inFlight++;
+            return new Permit(this, endpoint);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(Priority priority, int maxWait) throws ALMClientException {
+        if (interactiveWaiting + bulkWaiting >= MAX_QUEUED_REQUESTS) {
+            ALMMetrics.getInstance().recordRejectedRequest();
+            throw new ALMClientException("Too many pending requests to HP ALM server " + url);
+        }
+
+        boolean interactive = (priority == Priority.INTERACTIVE);
+        Condition turn = (interactive ? interactiveTurn : bulkTurn);
+        if (interactive) {
+            interactiveWaiting++;
+        } else {
+            bulkWaiting++;
+        }
+        try {
+            long remaining = TimeUnit.SECONDS.toNanos(Math.max(0, maxWait));
+            while (!canStart(priority)) {
+                if (remaining <= 0) {
+                    ALMMetrics.getInstance().recordRejectedRequest();
+                    throw new ALMClientException("Too many concurrent requests to HP ALM server " + url
+                            + ", gave up after waiting " + maxWait + " seconds");
+                }
+                remaining = turn.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ALMClientException("Interrupted while waiting to send HP ALM request", e);
+        } finally {
+            if (interactive) {
+                interactiveWaiting--;
+            } else {
+                bulkWaiting--;
+            }
+            // pass on a turn this waiter did not take
+            signalWaiting();
+        }
+    }
+
+    private boolean canStart(Priority priority) {
+        if (maxLimit <= 0) {
+            return true;
+        }
+        return inFlight < (int) limit && (priority == Priority.INTERACTIVE || interactiveWaiting == 0);
+    }
+
+    private void signalWaiting() {
+        int free = (maxLimit <= 0 ? interactiveWaiting + bulkWaiting : (int) limit - inFlight);
+        int interactive = Math.min(free, interactiveWaiting);
+        for (int i = 0; i < interactive; i++) {
+            interactiveTurn.signal();
+        }
+        if (interactiveWaiting == 0) {
+            for (int i = 0; i < Math.min(free, bulkWaiting); i++) {
+                bulkTurn.signal();
+            }
+        }
+    }
+
+    private void release(Permit permit, long latency) {
+        lock.lock();
+        try {
+            inFlight--;
+            // requests sent before the last decrease reflect the old limit
+            boolean current = (permit.started > lastDecrease);
+            if (permit.dropped) {
+                if (current) {
+                    decrease(DROP_BACKOFF_RATIO);
+                }
+            } else if (latency >= 0) {
+                Double baseline = baselines.get(permit.endpoint);
+                if (baseline == null) {
+                    baselines.put(permit.endpoint, (double) latency);
+                } else {
+                    if (latency > baseline * LATENCY_TOLERANCE) {
+                        if (current) {
+                            decrease(LATENCY_BACKOFF_RATIO);
+                        }
+                    } else if ((inFlight + 1) * 2 >= (int) limit) {
+                        // only grow the limit while it is being used
+                        limit = Math.min(maxLimit, limit + 1.0 / limit);
+                    }
+                    baselines.put(permit.endpoint, baseline + LATENCY_SMOOTHING * (latency - baseline));
+                }
+            }
+            signalWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(double ratio) {
+        double decreased = Math.max(MIN_LIMIT, limit * ratio);
+        if ((int) decreased < (int) limit) {
+            logger.debug("Reducing concurrent requests to HP ALM server {} to {}", url, (int) decreased);
+        }
+        limit = decreased;
+        lastDecrease = System.nanoTime();
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return interactiveWaiting + bulkWaiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Permission to send a request, released exactly once
+     */
+    public static class Permit {
+        private final ALMConcurrencyLimiter limiter;
+        private final String endpoint;
+        private final long started = System.nanoTime();
+        private boolean dropped;
+        private boolean released;
+
+        private Permit(ALMConcurrencyLimiter limiter, String endpoint) {
+            this.limiter = limiter;
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Mark the request as failed because of the load on the server, e.g. a timeout or
+         * a gateway error
+         */
+        public void drop() {
+            dropped = true;
+        }
+
+        /**
+         * Release the permit of a completed request
+         *
+         * @param completed  whether the response was read, false if the request failed
+         *                   for another reason than the load on the server
+         */
+        public void release(boolean completed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (limiter != null) {
+                limiter.release(this, (completed ? System.nanoTime() - started : -1));
+            }
+        }
+    }
+
+}
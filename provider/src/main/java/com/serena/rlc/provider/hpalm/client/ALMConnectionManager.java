@@ -0,0 +1,163 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared, pooled HTTP connection layer used by all {@link ALMClient} instances so that
+ * TCP/TLS connections to an HP ALM server are kept alive and reused between provider calls.
+ *
+ * @author klee
+ */
+
+public class ALMConnectionManager {
+    private static final Logger logger = LoggerFactory.getLogger(ALMConnectionManager.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 100;
+    public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 60;
+    public static final int DEFAULT_KEEPALIVE_TIMEOUT = 30;
+
+    private static final long MONITOR_INTERVAL_MILLIS = 5000L;
+
+    private static ALMConnectionManager instance;
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final IdleConnectionMonitor idleConnectionMonitor;
+    private volatile int idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+    private ALMConnectionManager() {
+        this.connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+        this.connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        this.connectionManager.setMaxTotal(DEFAULT_MAX_CONNECTIONS_TOTAL);
+        this.idleConnectionMonitor = new IdleConnectionMonitor();
+        this.idleConnectionMonitor.start();
+    }
+
+    public static synchronized ALMConnectionManager getInstance() {
+        if (instance == null) {
+            instance = new ALMConnectionManager();
+        }
+        return instance;
+    }
+
+    public ClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Apply connection limits for an HP ALM server
+     *
+     * @param host  the HP ALM server
+     * @param maxPerRoute  the maximum number of connections to the server
+     * @param maxTotal  the maximum number of connections across all servers
+     */
+    public synchronized void configure(HttpHost host, int maxPerRoute, int maxTotal) {
+        if (maxTotal > 0 && maxTotal > connectionManager.getMaxTotal()) {
+            connectionManager.setMaxTotal(maxTotal);
+        }
+        if (maxPerRoute > 0) {
+            connectionManager.setMaxPerRoute(getRoute(host), maxPerRoute);
+        }
+        logger.debug("HP ALM connection pool for {}: maxPerRoute={}, maxTotal={}", host, maxPerRoute, connectionManager.getMaxTotal());
+    }
+
+    public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+        if (idleConnectionTimeout > 0) {
+            this.idleConnectionTimeout = idleConnectionTimeout;
+        }
+    }
+
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Create a keep-alive strategy that honours the server "Keep-Alive" header and
+     * otherwise keeps connections open for the given number of seconds
+     *
+     * @param keepAliveTimeout  the default keep-alive time in seconds
+     * @return the keep-alive strategy
+     */
+    public ConnectionKeepAliveStrategy getKeepAliveStrategy(final int keepAliveTimeout) {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (it.hasNext()) {
+                    HeaderElement he = it.nextElement();
+                    if (he.getValue() != null && he.getName().equalsIgnoreCase("timeout")) {
+                        try {
+                            return Long.parseLong(he.getValue()) * 1000L;
+                        } catch (NumberFormatException ignore) {
+                        }
+                    }
+                }
+                return keepAliveTimeout * 1000L;
+            }
+        };
+    }
+
+    /**
+     * @param scheme  the URL scheme, http or https
+     * @return the port of the scheme
+     */
+    public static int getDefaultPort(String scheme) {
+        return ("https".equalsIgnoreCase(scheme) ? 443 : 80);
+    }
+
+    private HttpRoute getRoute(HttpHost host) {
+        if (host.getPort() < 0) {
+            host = new HttpHost(host.getHostName(), getDefaultPort(host.getSchemeName()), host.getSchemeName());
+        }
+        return new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName()));
+    }
+
+    /**
+     * Background thread that evicts expired and idle connections from the pool
+     */
+    private class IdleConnectionMonitor extends Thread {
+
+        IdleConnectionMonitor() {
+            super("hpalm-idle-connection-monitor");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    Thread.sleep(MONITOR_INTERVAL_MILLIS);
+                    connectionManager.closeExpiredConnections();
+                    connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException ex) {
+                logger.debug("HP ALM idle connection monitor stopped");
+            }
+        }
+    }
+
+}
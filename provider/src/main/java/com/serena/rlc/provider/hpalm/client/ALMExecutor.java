@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared, bounded thread pool that runs the asynchronous {@link ALMClient} calls, so that
+ * callers do not tie up one of their own threads per HP ALM request.
+ *
+ * @author klee
+ */
+
+public class ALMExecutor {
+
+    public static final int DEFAULT_THREADS = 16;
+    public static final int MAX_QUEUED_REQUESTS = 1000;
+
+    private static final ALMExecutor instance = new ALMExecutor();
+
+    private final ThreadPoolExecutor executor;
+
+    private ALMExecutor() {
+        executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUED_REQUESTS), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "hpalm-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static ALMExecutor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Set the number of threads used to execute HP ALM requests
+     *
+     * @param threads  the number of threads
+     */
+    public synchronized void setThreads(int threads) {
+        if (threads <= 0 || threads == executor.getMaximumPoolSize()) {
+            return;
+        }
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Run a call on the pool
+     *
+     * @param call  the call to run
+     * @return a future completed with the result of the call, or exceptionally with the
+     * exception it threw or an {@link ALMClientException} if too many requests are pending
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new ALMClientException("Too many pending HP ALM requests", e));
+        }
+        return future;
+    }
+
+}
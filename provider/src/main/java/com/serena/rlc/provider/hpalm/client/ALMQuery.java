@@ -0,0 +1,226 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds the parameters of an HP ALM entity collection request: the query filter, ordering,
+ * fields and paging, e.g.
+ * <pre>
+ *   ?query={name[*login*]; status[New or "Not a Bug"]}&amp;order-by={id[ASC]}&amp;page-size=50&amp;start-index=1
+ * </pre>
+ * Values containing spaces or query syntax characters are quoted, so that user input cannot
+ * break the filter. The URL encoded form of each filter and field list is memoized, as the
+ * same status filters come up over and over.
+ *
+ * @author klee
+ */
+
+public class ALMQuery {
+
+    public static final int MAX_CACHED_FILTERS = 1000;
+
+    private static final String PAGE_SIZE_MAX = "max";
+    private static final String SPECIAL_CHARACTERS = ";[]{}()\"'\\<>=!|&,";
+
+    private static final ConcurrentMap<String, String> encodedFilters = new ConcurrentHashMap<>();
+
+    private final List<String> conditions = new ArrayList<>();
+    private String orderBy;
+    private String fields;
+    private int startIndex;
+    private int pageSize;
+
+    /**
+     * Match entities whose field has any of the values, no condition is added if there are no values
+     *
+     * @param field  the field name, e.g. status
+     * @param values  the values, e.g. New, Open
+     * @return this query
+     */
+    public ALMQuery whereAny(String field, Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return this;
+        }
+        StringBuilder condition = new StringBuilder(field.length() + 16 * values.size());
+        condition.append(field).append('[');
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                condition.append(" or ");
+            }
+            condition.append(quote(value));
+            first = false;
+        }
+        conditions.add(condition.append(']').toString());
+        return this;
+    }
+
+    /**
+     * Match entities whose field contains the text, no condition is added for empty text
+     *
+     * @param field  the field name, e.g. name
+     * @param text  the text to search for
+     * @return this query
+     */
+    public ALMQuery whereContains(String field, String text) {
+        if (text == null || text.isEmpty()) {
+            return this;
+        }
+        conditions.add(field + "[" + quote("*" + text + "*") + "]");
+        return this;
+    }
+
+    /**
+     * Match entities whose field is at least the value, no condition is added for an empty value
+     *
+     * @param field  the field name, e.g. last-modified
+     * @param value  the lowest value, e.g. 2016-01-31 12:00:00
+     * @return this query
+     */
+    public ALMQuery whereAtLeast(String field, String value) {
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        conditions.add(field + "[>=" + quoteAlways(value) + "]");
+        return this;
+    }
+
+    /**
+     * @param field  the field to order by
+     * @param ascending  true for ascending order
+     * @return this query
+     */
+    public ALMQuery orderBy(String field, boolean ascending) {
+        this.orderBy = "{" + field + (ascending ? "[ASC]}" : "[DESC]}");
+        return this;
+    }
+
+    /**
+     * @param fields  the comma separated fields to return
+     * @return this query
+     */
+    public ALMQuery fields(String fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    /**
+     * @param startIndex  the zero based index of the first entity to return
+     * @param pageSize  the number of entities to return, 0 or less for as many as the server allows
+     * @return this query
+     */
+    public ALMQuery page(int startIndex, int pageSize) {
+        this.startIndex = Math.max(0, startIndex);
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * @return the query filter, e.g. {name[*login*]; status[New or Open]}
+     */
+    public String getFilter() {
+        StringBuilder filter = new StringBuilder(64);
+        filter.append('{');
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i > 0) {
+                filter.append("; ");
+            }
+            filter.append(conditions.get(i));
+        }
+        return filter.append('}').toString();
+    }
+
+    /**
+     * @return the URL encoded request parameters, starting with "?"
+     */
+    public String toParameters() {
+        StringBuilder parameters = new StringBuilder(256);
+        parameters.append("?query=").append(encode(getFilter()));
+        if (orderBy != null) {
+            parameters.append("&order-by=").append(encode(orderBy));
+        }
+        if (fields != null) {
+            parameters.append("&fields=").append(encode(fields));
+        }
+        parameters.append("&page-size=").append(pageSize > 0 ? Integer.toString(pageSize) : PAGE_SIZE_MAX);
+        // HP ALM start-index is one based
+        parameters.append("&start-index=").append(startIndex + 1);
+        return parameters.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toParameters();
+    }
+
+    /**
+     * Quote a value if it would otherwise not be read as a single value
+     *
+     * @param value  the value
+     * @return the value, quoted if needed
+     */
+    public static String quote(String value) {
+        if (value == null || value.isEmpty()) {
+            return "\"\"";
+        }
+        if ("or".equalsIgnoreCase(value) || "and".equalsIgnoreCase(value) || "not".equalsIgnoreCase(value)) {
+            return quoteAlways(value);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+                return quoteAlways(value);
+            }
+        }
+        return value;
+    }
+
+    private static String quoteAlways(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 8);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\');
+            }
+            quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * URL encode a parameter value, memoized
+     */
+    static String encode(String value) {
+        String encoded = encodedFilters.get(value);
+        if (encoded == null) {
+            try {
+                encoded = URLEncoder.encode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            if (encodedFilters.size() >= MAX_CACHED_FILTERS) {
+                // title filters are free text, start over rather than grow without bounds
+                encodedFilters.clear();
+            }
+            encodedFilters.put(value, encoded);
+        }
+        return encoded;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The authentication tokens of a logged in HP ALM session: every cookie set by the login
+ * requests, of which HP ALM needs at least LWSSO_COOKIE_KEY, QCSession and XSRF-TOKEN.
+ *
+ * @author klee
+ */
+
+public class ALMSession {
+
+    public static final String SSO_COOKIE = "LWSSO_COOKIE_KEY";
+    public static final String XSRF_COOKIE = "XSRF-TOKEN";
+
+    private final String key;
+    // replaced as a whole, so readers never see a partly updated set of cookies
+    private volatile Map<String, String> cookies = Collections.emptyMap();
+    private volatile String cookieHeader = "";
+    private volatile int generation;
+
+    public ALMSession(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Add or replace a cookie of the session
+     *
+     * @param cookie  the cookie, as name=value
+     */
+    public synchronized void setCookie(String cookie) {
+        int separator = (cookie == null ? -1 : cookie.indexOf('='));
+        if (separator <= 0) {
+            return;
+        }
+        Map<String, String> newCookies = new LinkedHashMap<>(cookies);
+        newCookies.put(cookie.substring(0, separator).trim(), cookie);
+        setCookies(newCookies);
+    }
+
+    /**
+     * @param name  the cookie name, e.g. QCSession
+     * @return the cookie as name=value, or null if the session has no such cookie
+     */
+    public String getCookie(String name) {
+        return cookies.get(name);
+    }
+
+    public String getSsoCookie() {
+        return getCookie(SSO_COOKIE);
+    }
+
+    public String getXsrfToken() {
+        String xsrfCookie = getCookie(XSRF_COOKIE);
+        return (xsrfCookie == null ? null : xsrfCookie.substring(xsrfCookie.indexOf('=') + 1));
+    }
+
+    /**
+     * The generation is incremented on every successful login, so callers that saw a session
+     * rejected can tell whether somebody else has already re-authenticated it.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public boolean isAuthenticated() {
+        return getSsoCookie() != null;
+    }
+
+    public synchronized void authenticated() {
+        generation++;
+    }
+
+    public synchronized void invalidate() {
+        setCookies(Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Build the value of the "Cookie" request header for this session
+     *
+     * @return the cookie header value
+     */
+    public String getCookieHeader() {
+        return cookieHeader;
+    }
+
+    private void setCookies(Map<String, String> newCookies) {
+        StringBuilder sb = new StringBuilder(256);
+        for (String cookie : newCookies.values()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(cookie);
+        }
+        cookies = (newCookies.isEmpty() ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(newCookies));
+        cookieHeader = sb.toString();
+    }
+
+}
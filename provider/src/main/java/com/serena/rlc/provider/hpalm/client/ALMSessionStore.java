@@ -0,0 +1,64 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide store of HP ALM sessions keyed by server URL, user and domain, so that
+ * an authenticated session is shared by all provider calls until HP ALM rejects it.
+ *
+ * @author klee
+ */
+
+public class ALMSessionStore {
+
+    private static final ALMSessionStore instance = new ALMSessionStore();
+
+    private final ConcurrentMap<String, ALMSession> sessions = new ConcurrentHashMap<>();
+
+    private ALMSessionStore() {
+    }
+
+    public static ALMSessionStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the session for a server, user and domain, creating an unauthenticated one if needed
+     *
+     * @param url  the HP ALM server URL
+     * @param username  the HP ALM user
+     * @param domain  the HP ALM domain
+     * @return the session
+     */
+    public ALMSession getSession(String url, String username, String domain) {
+        String key = url + "|" + username + "|" + domain;
+        ALMSession session = sessions.get(key);
+        if (session == null) {
+            ALMSession newSession = new ALMSession(key);
+            session = sessions.putIfAbsent(key, newSession);
+            if (session == null) {
+                session = newSession;
+            }
+        }
+        return session;
+    }
+
+    public void remove(ALMSession session) {
+        sessions.remove(session.getKey(), session);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Response entity wrapper that decompresses a gzip or deflate encoded response body while
+ * it is read, so the parsers consume it without the whole body being inflated first.
+ * Unlike the HttpClient decompressing entities the content stream is only opened once,
+ * so closing it after a partial read still releases the connection.
+ *
+ * @author klee
+ */
+
+class DecodingEntity extends HttpEntityWrapper {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean gzip;
+    private InputStream content;
+
+    private DecodingEntity(HttpEntity entity, boolean gzip) {
+        super(entity);
+        this.gzip = gzip;
+    }
+
+    /**
+     * Wrap an entity according to its Content-Encoding
+     *
+     * @param entity  the response entity
+     * @return the decoding entity, or the entity itself if it is not compressed
+     */
+    static HttpEntity decode(HttpEntity entity) {
+        Header encoding = entity.getContentEncoding();
+        if (encoding == null) {
+            return entity;
+        }
+        String value = encoding.getValue().trim();
+        if ("gzip".equalsIgnoreCase(value) || "x-gzip".equalsIgnoreCase(value)) {
+            return new DecodingEntity(entity, true);
+        }
+        if ("deflate".equalsIgnoreCase(value)) {
+            return new DecodingEntity(entity, false);
+        }
+        return entity;
+    }
+
+    @Override
+    public synchronized InputStream getContent() throws IOException {
+        if (content == null) {
+            InputStream encoded = super.getContent();
+            content = (gzip ? new GZIPInputStream(encoded, BUFFER_SIZE) : inflate(encoded));
+        }
+        return content;
+    }
+
+    /**
+     * "deflate" should be zlib wrapped, but some servers send raw deflate data
+     */
+    private static InputStream inflate(InputStream encoded) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(encoded, 2);
+        byte[] header = new byte[2];
+        int count = 0;
+        while (count < 2) {
+            int read = in.read(header, count, 2 - count);
+            if (read < 0) {
+                break;
+            }
+            count += read;
+        }
+        in.unread(header, 0, count);
+        boolean zlib = (count == 2 && (header[0] & 0x0f) == 8
+                && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0);
+
+        final Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream in = getContent();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import com.serena.rlc.provider.hpalm.metrics.ALMMetrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response entity wrapper that counts the bytes read from the response body
+ *
+ * @author klee
+ */
+
+class MeteredEntity extends HttpEntityWrapper {
+
+    MeteredEntity(HttpEntity entity) {
+        super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        InputStream content = super.getContent();
+        if (content == null) {
+            return null;
+        }
+        return new FilterInputStream(content) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    ALMMetrics.getInstance().recordBytesReceived(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    ALMMetrics.getInstance().recordBytesReceived(count);
+                }
+                return count;
+            }
+        };
+    }
+
+}
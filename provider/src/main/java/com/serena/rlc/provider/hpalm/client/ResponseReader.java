@@ -0,0 +1,32 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Consumes the body of an HP ALM response as it is streamed from the connection.
+ *
+ * @author klee
+ */
+
+public interface ResponseReader<T> {
+
+    /**
+     * Read the response body
+     *
+     * @param reader  the response body, decoded with the response charset
+     * @return the result
+     * @throws IOException
+     */
+    T read(Reader reader) throws IOException;
+
+}
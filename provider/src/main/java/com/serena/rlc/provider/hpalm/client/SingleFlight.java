@@ -0,0 +1,107 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.client;
+
+import com.serena.rlc.provider.hpalm.exception.ALMClientException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical concurrent calls: while a call for a key is in flight, other callers
+ * with the same key wait for it and share its result instead of making their own call.
+ * Nothing is kept once the call completes.
+ *
+ * @author klee
+ */
+
+public class SingleFlight<T> {
+
+    private final ConcurrentMap<String, CompletableFuture<T>> calls = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Run the call, or wait for the in-flight call with the same key
+     *
+     * @param key  the request key
+     * @param call  the call to run if none is in flight
+     * @return the result of the call, shared with all concurrent callers of the key
+     * @throws ALMClientException if the call failed
+     */
+    public T execute(String key, Callable<T> call) throws ALMClientException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> inFlight = calls.putIfAbsent(key, future);
+        if (inFlight != null) {
+            shared.incrementAndGet();
+            return await(inFlight);
+        }
+
+        executed.incrementAndGet();
+        try {
+            T result = call.call();
+            future.complete(result);
+            return result;
+        } catch (ALMClientException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } catch (Exception e) {
+            ALMClientException error = new ALMClientException(e.getMessage(), e);
+            future.completeExceptionally(error);
+            throw error;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    public int getInFlight() {
+        return calls.size();
+    }
+
+    /**
+     * @return the number of calls actually made
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * @return the number of callers that shared the result of an in-flight call
+     */
+    public long getShared() {
+        return shared.get();
+    }
+
+    private T await(CompletableFuture<T> future) throws ALMClientException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ALMClientException("Interrupted while waiting for HP ALM request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ALMClientException) {
+                throw (ALMClientException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ALMClientException(cause.getMessage(), cause);
+        }
+    }
+
+}
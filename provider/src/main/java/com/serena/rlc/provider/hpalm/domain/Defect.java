@@ -0,0 +1,462 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import com.serena.rlc.provider.hpalm.metrics.ALMMetrics;
+import com.serena.rlc.provider.hpalm.metrics.OperationMetrics;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HP ALM defect. Defects are kept in large numbers by the defect cache and replicas, so
+ * they are stored compactly: low cardinality values are shared through a {@link ValuePool},
+ * dates and times are packed into primitives and the description, usually the largest
+ * field, is held as UTF-8 and only decoded when it is read.
+ *
+ * @author klee
+ */
+
+public class Defect extends ALMObject {
+
+    private static final long serialVersionUID = 2L;
+
+    private final static Logger logger = LoggerFactory.getLogger(Defect.class);
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The HP ALM defect fields that are mapped by {@link #parseSingle(JSONObject)}
+     */
+    public final static List<String> MAPPED_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "id", "name", "status", "priority", "severity", "description", "project",
+            "detected-by", "creation-time", "owner", "last-modified", "target-rcyc"));
+
+    /**
+     * Binders of the mapped fields, see {@link #getBinders(List)} for additional fields
+     */
+    public final static FieldBinders<Defect> BINDERS = new FieldBinders<Defect>()
+            .with("id", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setId(value);
+                }
+            })
+            .with("name", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setName(value);
+                }
+            })
+            .with("status", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setStatus(value);
+                }
+            })
+            .with("priority", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setPriority(value);
+                }
+            })
+            .with("severity", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setSeverity(value);
+                }
+            })
+            .with("description", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setDescription(value);
+                }
+            })
+            .with("project", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setProject(value);
+                }
+            })
+            .with("detected-by", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setCreator(value);
+                }
+            })
+            .with("creation-time", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setDateCreated(value);
+                }
+            })
+            .with("owner", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setOwner(value);
+                }
+            })
+            .with("last-modified", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setLastUpdated(value);
+                }
+            })
+            .with("target-rcyc", new FieldBinder<Defect>() {
+                @Override
+                public void bind(Defect defect, String value) {
+                    defect.setTargetRelease(value);
+                }
+            });
+
+    private String status;
+    private String url;
+    private String owner;
+    private String project;
+    private String priority;
+    private String severity;
+    private String type;
+    private String creator;
+    private String assignee;
+    private String estimatedEffort;
+    private String actualEffort;
+    private String subject;
+    private String targetRel;
+    private byte[] description;
+    private long dateCreated = Timestamps.NONE;
+    private long lastUpdated = Timestamps.NONE;
+    private long dueDate = Timestamps.NONE;
+    // dates and times that are not in the HP ALM format are kept as they are
+    private String[] unpackedDates;
+    private Map<String, String> extraFields;
+
+    public Defect() {
+
+    }
+
+    public Defect(String id, String name, String description, String status, String url) {
+        this.setId(id);
+        this.setName(name);
+        this.setDescription(description);
+        this.setStatus(status);
+        this.setUrl(url);
+        this.setType("Defect");
+    }
+
+    @Override
+    public String getDescription() {
+        return (description == null ? null : new String(description, UTF8));
+    }
+    @Override
+    public void setDescription(String description) {
+        this.description = (description == null ? null : description.getBytes(UTF8));
+    }
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = ValuePool.intern(status);
+    }
+    public String getUrl() {
+        return url;
+    }
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    public String getOwner() {
+        return owner;
+    }
+    public void setOwner(String owner) {
+        this.owner = ValuePool.intern(owner);
+    }
+    public String getProject() {
+        return project;
+    }
+    public void setProject(String project) {
+        this.project = ValuePool.intern(project);
+    }
+    public String getPriority() {
+        return priority;
+    }
+    public void setPriority(String priority) {
+        this.priority = ValuePool.intern(priority);
+    }
+    public String getSeverity() {
+        return severity;
+    }
+    public void setSeverity(String severity) {
+        this.severity = ValuePool.intern(severity);
+    }
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = ValuePool.intern(type);
+    }
+    public String getDateCreated() {
+        return getDate(dateCreated, 0);
+    }
+    public void setDateCreated(String dateCreated) {
+        this.dateCreated = setDate(dateCreated, 0);
+    }
+    public String getCreator() {
+        return creator;
+    }
+    public void setCreator(String creator) {
+        this.creator = ValuePool.intern(creator);
+    }
+    public String getLastUpdated() {
+        return getDate(lastUpdated, 1);
+    }
+    public void setLastUpdated(String lastModifier) {
+        this.lastUpdated = setDate(lastModifier, 1);
+    }
+    public String getAssignee() {
+        return assignee;
+    }
+    public void setAssignee(String assignee) {
+        this.assignee = ValuePool.intern(assignee);
+    }
+    public String getDueDate() {
+        return getDate(dueDate, 2);
+    }
+    public void setDueDate(String dueDate) {
+        this.dueDate = setDate(dueDate, 2);
+    }
+    public String getEstimatedEffort() {
+        return estimatedEffort;
+    }
+    public void setEstimatedEffort(String estimatedEffort) {
+        this.estimatedEffort = estimatedEffort;
+    }
+    public String getActualEffort() {
+        return actualEffort;
+    }
+    public void setActualEffort(String actualEffort) {
+        this.actualEffort = actualEffort;
+    }
+    public String getSubject() {
+        return subject;
+    }
+    public void setSubject(String subject) {
+        this.subject = ValuePool.intern(subject);
+    }
+    public String getTargetRelease() {
+        return targetRel;
+    }
+    public void setTargetRelease(String targetRel) {
+        this.targetRel = ValuePool.intern(targetRel);
+    }
+    public Map<String, String> getExtraFields() {
+        if (extraFields == null) {
+            return Collections.emptyMap();
+        }
+        return extraFields;
+    }
+    public void setExtraField(String name, String value) {
+        if (extraFields == null) {
+            extraFields = new LinkedHashMap<>();
+        }
+        extraFields.put(name, value);
+    }
+
+    // raw state, used by DefectCodec to store defects without decoding them
+
+    byte[] getDescriptionUtf8() {
+        return description;
+    }
+    void setDescriptionUtf8(byte[] description) {
+        this.description = description;
+    }
+    long getPackedDate(int index) {
+        return (index == 0 ? dateCreated : index == 1 ? lastUpdated : dueDate);
+    }
+    void setPackedDate(int index, long packed) {
+        if (index == 0) {
+            dateCreated = packed;
+        } else if (index == 1) {
+            lastUpdated = packed;
+        } else {
+            dueDate = packed;
+        }
+    }
+    String getUnpackedDate(int index) {
+        return (unpackedDates == null ? null : unpackedDates[index]);
+    }
+    void setUnpackedDate(int index, String date) {
+        setPackedDate(index, setDate(date, index));
+    }
+
+    private String getDate(long packed, int index) {
+        if (packed != Timestamps.NONE) {
+            return Timestamps.format(packed);
+        }
+        return (unpackedDates == null ? null : unpackedDates[index]);
+    }
+
+    private long setDate(String date, int index) {
+        long packed = Timestamps.pack(date);
+        if (packed == Timestamps.NONE && date != null) {
+            if (unpackedDates == null) {
+                unpackedDates = new String[3];
+            }
+            unpackedDates[index] = date;
+        } else if (unpackedDates != null) {
+            unpackedDates[index] = null;
+        }
+        return packed;
+    }
+
+    public static Defect parseSingle(String options) {
+        try {
+            return parseSingle(new StringReader(options));
+        } catch (IOException e) {
+            logger.error("Error while parsing input JSON - " + options, e);
+        }
+        return null;
+    }
+
+    public static Defect parseSingle(Reader reader) throws IOException {
+        return parseSingle(reader, BINDERS);
+    }
+
+    /**
+     * @param reader  the defect entity JSON
+     * @param binders  the binders of the fields to map, fields without a binder are skipped
+     * @return the defect, or null if the JSON is invalid
+     * @throws IOException
+     */
+    public static Defect parseSingle(Reader reader, FieldBinders<Defect> binders) throws IOException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("parse.defect");
+        long started = System.nanoTime();
+        boolean success = false;
+        JSONParser parser = new JSONParser();
+        DefectContentHandler handler = new DefectContentHandler(false, binders);
+        try {
+            parser.parse(reader, handler);
+            success = true;
+            return handler.getDefect();
+        } catch (ParseException e) {
+            logger.error("Error while parsing input JSON at position " + e.getPosition(), e);
+        } finally {
+            metrics.record(started, success);
+        }
+        return null;
+    }
+
+    public static List<Defect> parse(String options) {
+        return parsePage(options).getDefects();
+    }
+
+    public static List<Defect> parse(Reader reader) throws IOException {
+        return parsePage(reader).getDefects();
+    }
+
+    public static DefectPage parsePage(String options) {
+        try {
+            return parsePage(new StringReader(options));
+        } catch (IOException e) {
+            logger.error("Error while parsing input JSON - " + options, e);
+        }
+        return new DefectPage();
+    }
+
+    public static DefectPage parsePage(Reader reader) throws IOException {
+        return parsePage(reader, BINDERS);
+    }
+
+    /**
+     * @param reader  the defect collection JSON
+     * @param binders  the binders of the fields to map, fields without a binder are skipped
+     * @return the page of defects, empty if the JSON is invalid
+     * @throws IOException
+     */
+    public static DefectPage parsePage(Reader reader, FieldBinders<Defect> binders) throws IOException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("parse.defects");
+        long started = System.nanoTime();
+        boolean success = false;
+        JSONParser parser = new JSONParser();
+        DefectContentHandler handler = new DefectContentHandler(true, binders);
+        try {
+            parser.parse(reader, handler);
+            success = true;
+            return handler.getPage();
+        } catch (ParseException e) {
+            logger.error("Error while parsing input JSON at position " + e.getPosition(), e);
+        } finally {
+            metrics.record(started, success);
+        }
+        return new DefectPage();
+    }
+
+    public static Defect parseSingle(JSONObject jsonObject) {
+        Defect obj = new Defect();
+        if (jsonObject != null) {
+            JSONArray fieldsArray = (JSONArray) jsonObject.get("Fields");
+            for (Object defect : fieldsArray) {
+                JSONObject defectObject = (JSONObject) defect;
+                FieldBinder<Defect> binder = BINDERS.get((String) defectObject.get("Name"));
+                if (binder == null) {
+                    continue;
+                }
+                JSONArray fieldValueArray  = (JSONArray) defectObject.get("values");
+                if (!fieldValueArray.isEmpty()) {
+                    binder.bind(obj, getFieldValue((JSONObject) fieldValueArray.get(0)));
+                }
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Get the binders of the mapped fields and of additional fields, which are stored as
+     * extra fields, e.g. custom "user-01" fields
+     *
+     * @param extraFields  the names of the additional fields
+     * @return the binders
+     */
+    public static FieldBinders<Defect> getBinders(List<String> extraFields) {
+        FieldBinders<Defect> binders = BINDERS;
+        if (extraFields != null) {
+            for (final String fieldName : extraFields) {
+                if (!binders.contains(fieldName)) {
+                    binders = binders.with(fieldName, new FieldBinder<Defect>() {
+                        @Override
+                        public void bind(Defect defect, String value) {
+                            defect.setExtraField(fieldName, value);
+                        }
+                    });
+                }
+            }
+        }
+        return binders;
+    }
+
+    private static String getFieldValue(JSONObject jsonObject) {
+        if (jsonObject.get("value") == null)
+            return "";
+        else
+            return jsonObject.get("value").toString();
+    }
+
+}
\ No newline at end of file
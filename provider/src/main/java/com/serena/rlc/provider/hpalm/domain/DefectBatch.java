@@ -0,0 +1,57 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of looking up a batch of defects by their "project:id" keys.
+ *
+ * @author klee
+ */
+
+public class DefectBatch {
+
+    private final List<String> keys = new ArrayList<>();
+    private final List<Defect> defects = new ArrayList<>();
+    private final List<String> missing = new ArrayList<>();
+
+    public void addDefect(String key, Defect defect) {
+        keys.add(key);
+        defects.add(defect);
+    }
+
+    public void addMissing(String key) {
+        missing.add(key);
+    }
+
+    /**
+     * @return the keys of the defects that were found, in the order they were requested
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the defects that were found, in the order they were requested
+     */
+    public List<Defect> getDefects() {
+        return defects;
+    }
+
+    /**
+     * @return the keys of the defects that were not found
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+
+}
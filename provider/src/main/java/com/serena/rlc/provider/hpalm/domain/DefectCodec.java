@@ -0,0 +1,147 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Compact binary form of defects, as stored in defect snapshots. Strings are written as
+ * their UTF-8 length and bytes, packed dates and times as longs and the description as
+ * the UTF-8 bytes the defect already holds, so neither has to be converted on the way in
+ * or out. Defects are read from a {@link ByteBuffer} holding a snapshot file.
+ *
+ * @author klee
+ */
+
+public final class DefectCodec {
+
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int DATES = 3;
+
+    private DefectCodec() {
+    }
+
+    /**
+     * @param out  the output to write to
+     * @param defect  the defect
+     * @throws IOException
+     */
+    public static void write(DataOutput out, Defect defect) throws IOException {
+        writeString(out, defect.getId());
+        writeString(out, defect.getName());
+        writeString(out, defect.getType());
+        writeString(out, defect.getUrl());
+        writeString(out, defect.getStatus());
+        writeString(out, defect.getOwner());
+        writeString(out, defect.getProject());
+        writeString(out, defect.getPriority());
+        writeString(out, defect.getSeverity());
+        writeString(out, defect.getCreator());
+        writeString(out, defect.getAssignee());
+        writeString(out, defect.getSubject());
+        writeString(out, defect.getTargetRelease());
+        writeString(out, defect.getEstimatedEffort());
+        writeString(out, defect.getActualEffort());
+        writeBytes(out, defect.getDescriptionUtf8());
+        for (int i = 0; i < DATES; i++) {
+            long packed = defect.getPackedDate(i);
+            out.writeLong(packed);
+            if (packed == Timestamps.NONE) {
+                writeString(out, defect.getUnpackedDate(i));
+            }
+        }
+        Map<String, String> extraFields = defect.getExtraFields();
+        out.writeInt(extraFields.size());
+        for (Map.Entry<String, String> extraField : extraFields.entrySet()) {
+            writeString(out, extraField.getKey());
+            writeString(out, extraField.getValue());
+        }
+    }
+
+    /**
+     * @param in  the buffer to read from, positioned at a defect written by {@link #write(DataOutput, Defect)}
+     * @return the defect
+     * @throws BufferUnderflowException if the buffer ends before the defect
+     */
+    public static Defect read(ByteBuffer in) {
+        Defect defect = new Defect();
+        defect.setId(readString(in));
+        defect.setName(readString(in));
+        defect.setType(readString(in));
+        defect.setUrl(readString(in));
+        defect.setStatus(readString(in));
+        defect.setOwner(readString(in));
+        defect.setProject(readString(in));
+        defect.setPriority(readString(in));
+        defect.setSeverity(readString(in));
+        defect.setCreator(readString(in));
+        defect.setAssignee(readString(in));
+        defect.setSubject(readString(in));
+        defect.setTargetRelease(readString(in));
+        defect.setEstimatedEffort(readString(in));
+        defect.setActualEffort(readString(in));
+        defect.setDescriptionUtf8(readBytes(in));
+        for (int i = 0; i < DATES; i++) {
+            long packed = in.getLong();
+            if (packed == Timestamps.NONE) {
+                defect.setUnpackedDate(i, readString(in));
+            } else {
+                defect.setPackedDate(i, packed);
+            }
+        }
+        int extraFields = in.getInt();
+        for (int i = 0; i < extraFields; i++) {
+            defect.setExtraField(readString(in), readString(in));
+        }
+        return defect;
+    }
+
+    /**
+     * Write a string as its UTF-8 length and bytes, -1 for null
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, (value == null ? null : value.getBytes(UTF8)));
+    }
+
+    public static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return (bytes == null ? null : new String(bytes, UTF8));
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            // a damaged length, fail before allocating it
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+}
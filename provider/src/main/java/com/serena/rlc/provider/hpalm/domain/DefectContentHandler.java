@@ -0,0 +1,178 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import org.json.simple.parser.ContentHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON handler that builds {@link Defect} objects directly from the HP ALM
+ * entity JSON tokens, without materializing the document as a JSON tree. Field values are
+ * passed straight to the binder of the field, values of fields without a binder are skipped.
+ *
+ * @author klee
+ */
+
+class DefectContentHandler implements ContentHandler {
+
+    private static final String ENTITIES = "entities";
+    private static final String TOTAL_RESULTS = "TotalResults";
+    private static final String TYPE = "Type";
+    private static final String FIELDS = "Fields";
+    private static final String NAME = "Name";
+    private static final String VALUES = "values";
+    private static final String VALUE = "value";
+
+    private final boolean entityList;
+    private final FieldBinders<Defect> binders;
+    private final int entityDepth;
+    private final List<String> path = new ArrayList<>();
+    private final DefectPage page = new DefectPage();
+
+    private Defect defect;
+    private Defect single;
+    private String defectType;
+    private FieldBinder<Defect> fieldBinder;
+    private boolean fieldNameFound;
+    private String fieldValue;
+    private int valueIndex;
+    private boolean totalResultsFound;
+
+    /**
+     * @param entityList  true to parse an "entities" collection, false to parse a single entity
+     * @param binders  the binders of the fields to map
+     */
+    DefectContentHandler(boolean entityList, FieldBinders<Defect> binders) {
+        this.entityList = entityList;
+        this.binders = binders;
+        this.entityDepth = (entityList ? 1 : 0);
+    }
+
+    DefectPage getPage() {
+        if (!totalResultsFound) {
+            page.setTotalResults(page.getDefects().size());
+        }
+        return page;
+    }
+
+    Defect getDefect() {
+        return single;
+    }
+
+    @Override
+    public void startJSON() {
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() {
+        if (isEntityPath()) {
+            defect = new Defect();
+            defectType = null;
+        } else if (defect != null && isEntityPath(FIELDS)) {
+            fieldBinder = null;
+            fieldNameFound = false;
+            fieldValue = null;
+            valueIndex = 0;
+        } else if (defect != null && isEntityPath(FIELDS, VALUES)) {
+            valueIndex++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject() {
+        if (defect == null) {
+            return true;
+        }
+        if (isEntityPath()) {
+            if (entityList) {
+                defect.setType(defectType);
+                page.getDefects().add(defect);
+            } else {
+                single = defect;
+            }
+            defect = null;
+        } else if (isEntityPath(FIELDS)) {
+            // only fields with at least one value are mapped
+            if (fieldBinder != null && valueIndex > 0) {
+                fieldBinder.bind(defect, fieldValue == null ? "" : fieldValue);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        path.add(key);
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        path.remove(path.size() - 1);
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        if (defect != null) {
+            if (isEntityPath(FIELDS, VALUES, VALUE)) {
+                // only the first value of a mapped field is kept, the name usually comes first
+                if (valueIndex == 1 && value != null && (fieldBinder != null || !fieldNameFound)) {
+                    fieldValue = value.toString();
+                }
+            } else if (isEntityPath(FIELDS, NAME)) {
+                fieldBinder = (value instanceof String ? binders.get((String) value) : null);
+                fieldNameFound = true;
+            } else if (isEntityPath(TYPE)) {
+                defectType = (value == null ? null : value.toString());
+            }
+        } else if (entityList && path.size() == 1 && TOTAL_RESULTS.equals(path.get(0)) && value != null) {
+            page.setTotalResults(Integer.parseInt(value.toString()));
+            totalResultsFound = true;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the current position is the given path relative to the entity object
+     */
+    private boolean isEntityPath(String... keys) {
+        if (path.size() != entityDepth + keys.length) {
+            return false;
+        }
+        if (entityList && !ENTITIES.equals(path.get(0))) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (!keys[i].equals(path.get(entityDepth + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
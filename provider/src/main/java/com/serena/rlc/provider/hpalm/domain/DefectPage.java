@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of defects together with the total number of defects matching the query.
+ *
+ * @author klee
+ */
+
+public class DefectPage {
+
+    private List<Defect> defects;
+    private int startIndex;
+    private int totalResults;
+
+    public DefectPage() {
+        this.defects = new ArrayList<>();
+    }
+
+    public DefectPage(List<Defect> defects, int startIndex, int totalResults) {
+        this.defects = defects;
+        this.startIndex = startIndex;
+        this.totalResults = totalResults;
+    }
+
+    public List<Defect> getDefects() {
+        return defects;
+    }
+
+    public void setDefects(List<Defect> defects) {
+        this.defects = defects;
+    }
+
+    /**
+     * @return the zero based index of the first defect of this page
+     */
+    public int getStartIndex() {
+        return startIndex;
+    }
+
+    public void setStartIndex(int startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * @return the total number of defects matching the query
+     */
+    public int getTotalResults() {
+        return totalResults;
+    }
+
+    public void setTotalResults(int totalResults) {
+        this.totalResults = totalResults;
+    }
+
+}
@@ -0,0 +1,26 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+/**
+ * Sets the value of one HP ALM field on a domain object
+ *
+ * @author klee
+ */
+
+public interface FieldBinder<T> {
+
+    /**
+     * @param target  the object being parsed
+     * @param value  the field value
+     */
+    void bind(T target, String value);
+
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table from HP ALM field name to the {@link FieldBinder} that maps it, built once
+ * so that parsers look a field up instead of comparing its name against every mapped field.
+ * Fields without a binder are skipped.
+ *
+ * @author klee
+ */
+
+public final class FieldBinders<T> {
+
+    private final Map<String, FieldBinder<T>> binders;
+
+    public FieldBinders() {
+        this.binders = Collections.emptyMap();
+    }
+
+    private FieldBinders(Map<String, FieldBinder<T>> binders) {
+        this.binders = binders;
+    }
+
+    /**
+     * @param fieldName  the HP ALM field name
+     * @param binder  the binder of the field
+     * @return a copy of this table that also maps the field
+     */
+    public FieldBinders<T> with(String fieldName, FieldBinder<T> binder) {
+        Map<String, FieldBinder<T>> copy = new HashMap<>(binders);
+        copy.put(fieldName, binder);
+        return new FieldBinders<>(copy);
+    }
+
+    /**
+     * @param fieldName  the HP ALM field name
+     * @return the binder of the field, or null if the field is not mapped
+     */
+    public FieldBinder<T> get(String fieldName) {
+        return (fieldName == null ? null : binders.get(fieldName));
+    }
+
+    public boolean contains(String fieldName) {
+        return get(fieldName) != null;
+    }
+
+    /**
+     * Set a field on an object if it is mapped
+     *
+     * @return true if the field is mapped
+     */
+    public boolean bind(T target, String fieldName, String value) {
+        FieldBinder<T> binder = get(fieldName);
+        if (binder == null) {
+            return false;
+        }
+        binder.bind(target, value);
+        return true;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import com.serena.rlc.provider.hpalm.metrics.ALMMetrics;
+import com.serena.rlc.provider.hpalm.metrics.OperationMetrics;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author klee
+ */
+
+@XmlRootElement
+public class Project extends ALMObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private final static Logger logger = LoggerFactory.getLogger(Project.class);
+
+    /**
+     * Binders of the mapped project fields
+     */
+    public final static FieldBinders<Project> BINDERS = new FieldBinders<Project>()
+            .with("Name", new FieldBinder<Project>() {
+                @Override
+                public void bind(Project project, String value) {
+                    project.setName(value);
+                }
+            });
+
+    public static List<Project> parse(String options) {
+        try {
+            return parse(new StringReader(options));
+        } catch (IOException e) {
+            logger.error("Error while parsing input JSON - " + options, e);
+        }
+
+        return new ArrayList<>();
+    }
+
+    public static List<Project> parse(Reader reader) throws IOException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("parse.projects");
+        long started = System.nanoTime();
+        boolean success = false;
+        JSONParser parser = new JSONParser();
+        ProjectContentHandler handler = new ProjectContentHandler(true);
+        try {
+            parser.parse(reader, handler);
+            success = true;
+            return handler.getProjects();
+        } catch (ParseException e) {
+            // never pass on the projects read before the error as the complete list
+            logger.error("Error while parsing input JSON at position " + e.getPosition(), e);
+        } finally {
+            metrics.record(started, success);
+        }
+
+        return new ArrayList<>();
+    }
+
+    public static Project parseSingle(String options) {
+        try {
+            return parseSingle(new StringReader(options));
+        } catch (IOException e) {
+            logger.error("Error while parsing input JSON - " + options, e);
+        }
+        return null;
+    }
+
+    public static Project parseSingle(Reader reader) throws IOException {
+        OperationMetrics metrics = ALMMetrics.getInstance().getOperation("parse.project");
+        long started = System.nanoTime();
+        boolean success = false;
+        JSONParser parser = new JSONParser();
+        ProjectContentHandler handler = new ProjectContentHandler(false);
+        try {
+            parser.parse(reader, handler);
+            success = true;
+            List<Project> projects = handler.getProjects();
+            return (projects.isEmpty() ? null : projects.get(0));
+        } catch (ParseException e) {
+            logger.error("Error while parsing input JSON at position " + e.getPosition(), e);
+        } finally {
+            metrics.record(started, success);
+        }
+        return null;
+    }
+
+    public static Project parseSingle(JSONObject jsonObject) {
+        Project obj = new Project();
+        if (jsonObject != null) {
+            for (Object entry : jsonObject.entrySet()) {
+                Map.Entry<?, ?> field = (Map.Entry<?, ?>) entry;
+                FieldBinder<Project> binder = BINDERS.get((String) field.getKey());
+                if (binder != null) {
+                    binder.bind(obj, (field.getValue() == null ? null : field.getValue().toString()));
+                }
+            }
+        }
+        return obj;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import org.json.simple.parser.ContentHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming JSON handler that builds {@link Project} objects directly from the HP ALM
+ * projects JSON tokens, without materializing the document as a JSON tree.
+ *
+ * @author klee
+ */
+
+class ProjectContentHandler implements ContentHandler {
+
+    private final List<String> projectPath;
+    private final List<String> path = new ArrayList<>();
+    private final List<Project> projects = new ArrayList<>();
+
+    private Project project;
+
+    /**
+     * @param projectList  true to parse a "Projects" collection, false to parse a single project
+     */
+    ProjectContentHandler(boolean projectList) {
+        this.projectPath = (projectList ? Arrays.asList("Projects", "Project") : Collections.<String>emptyList());
+    }
+
+    List<Project> getProjects() {
+        return projects;
+    }
+
+    @Override
+    public void startJSON() {
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() {
+        if (path.equals(projectPath)) {
+            project = new Project();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject() {
+        if (project != null && path.equals(projectPath)) {
+            projects.add(project);
+            project = null;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        path.add(key);
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        path.remove(path.size() - 1);
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        if (project != null && path.size() == projectPath.size() + 1) {
+            FieldBinder<Project> binder = Project.BINDERS.get(path.get(path.size() - 1));
+            if (binder != null) {
+                binder.bind(project, (value == null ? null : value.toString()));
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+/**
+ * Packs HP ALM dates ("yyyy-MM-dd") and times ("yyyy-MM-dd HH:mm:ss") into a long holding
+ * their digits, e.g. 20160305 or 20160305123456, so they can be stored as primitives and
+ * formatted back to exactly the same text. No time zone is involved.
+ *
+ * @author klee
+ */
+
+final class Timestamps {
+
+    /**
+     * Value of a missing timestamp, or of one that is not in one of the HP ALM formats
+     */
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final int DATE_LENGTH = 10;
+    private static final int TIME_LENGTH = 19;
+    private static final long TIME_MIN = 10000000000000L;
+
+    private Timestamps() {
+    }
+
+    /**
+     * @param text  the date or time
+     * @return the packed timestamp, or {@link #NONE}
+     */
+    static long pack(String text) {
+        if (text == null || (text.length() != DATE_LENGTH && text.length() != TIME_LENGTH)) {
+            return NONE;
+        }
+        long packed = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char separator = separatorAt(i);
+            if (separator != 0) {
+                if (c != separator) {
+                    return NONE;
+                }
+            } else if (c >= '0' && c <= '9') {
+                packed = packed * 10 + (c - '0');
+            } else {
+                return NONE;
+            }
+        }
+        // only 4 digit years keep dates and times apart
+        return (text.charAt(0) == '0' ? NONE : packed);
+    }
+
+    /**
+     * @param packed  the packed timestamp
+     * @return the date or time, or null for {@link #NONE}
+     */
+    static String format(long packed) {
+        if (packed == NONE) {
+            return null;
+        }
+        char[] text = new char[packed >= TIME_MIN ? TIME_LENGTH : DATE_LENGTH];
+        long digits = packed;
+        for (int i = text.length - 1; i >= 0; i--) {
+            char separator = separatorAt(i);
+            if (separator != 0) {
+                text[i] = separator;
+            } else {
+                text[i] = (char) ('0' + digits % 10);
+                digits /= 10;
+            }
+        }
+        return new String(text);
+    }
+
+    private static char separatorAt(int index) {
+        switch (index) {
+            case 4:
+            case 7:
+                return '-';
+            case 10:
+                return ' ';
+            case 13:
+            case 16:
+                return ':';
+            default:
+                return 0;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide pool of the values of low cardinality defect fields, e.g. status, priority
+ * or owner, so that thousands of defects share one copy of each value instead of holding
+ * the copy created by the JSON parser. The pool stops growing once it is full.
+ *
+ * @author klee
+ */
+
+final class ValuePool {
+
+    static final int MAX_SIZE = 20000;
+
+    private static final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+
+    private ValuePool() {
+    }
+
+    /**
+     * @param value  the field value
+     * @return the pooled copy of the value
+     */
+    static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isEmpty()) {
+            return "";
+        }
+        String pooled = values.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (values.size() >= MAX_SIZE) {
+            return value;
+        }
+        pooled = values.putIfAbsent(value, value);
+        return (pooled == null ? value : pooled);
+    }
+
+    static int size() {
+        return values.size();
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.metrics;
+
+import com.serena.rlc.provider.hpalm.cache.DefectCache;
+import com.serena.rlc.provider.hpalm.client.ALMClient;
+import com.serena.rlc.provider.hpalm.client.ALMExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide metrics of the provider, published as MBeans under the
+ * "com.serena.rlc.provider.hpalm" domain: one "type=Operation" MBean per timed operation
+ * and a "type=Provider" MBean with the counters and cache statistics.
+ *
+ * @author klee
+ */
+
+public class ALMMetrics implements ALMMetricsMBean {
+    private static final Logger logger = LoggerFactory.getLogger(ALMMetrics.class);
+
+    public static final String JMX_DOMAIN = "com.serena.rlc.provider.hpalm";
+
+    private static final ALMMetrics instance = new ALMMetrics();
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong replicaHits = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong partialSearches = new AtomicLong();
+
+    private ALMMetrics() {
+        register("type=Provider", this);
+    }
+
+    public static ALMMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the metrics of an operation, registering its MBean on first use
+     *
+     * @param name  the operation name, e.g. http.defects
+     * @return the operation metrics
+     */
+    public OperationMetrics getOperation(String name) {
+        OperationMetrics operation = operations.get(name);
+        if (operation == null) {
+            OperationMetrics newOperation = new OperationMetrics(name);
+            operation = operations.putIfAbsent(name, newOperation);
+            if (operation == null) {
+                operation = newOperation;
+                register("type=Operation,name=" + ObjectName.quote(name), operation);
+            }
+        }
+        return operation;
+    }
+
+    public void recordLogin() {
+        logins.incrementAndGet();
+    }
+
+    public void recordBytesReceived(long bytes) {
+        bytesReceived.addAndGet(bytes);
+    }
+
+    public void recordReplicaHit() {
+        replicaHits.incrementAndGet();
+    }
+
+    public void recordRejectedRequest() {
+        rejectedRequests.incrementAndGet();
+    }
+
+    public void recordPartialSearch() {
+        partialSearches.incrementAndGet();
+    }
+
+    @Override
+    public long getLogins() {
+        return logins.get();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public long getDefectCacheHits() {
+        return DefectCache.getInstance().getHits();
+    }
+
+    @Override
+    public long getDefectCacheMisses() {
+        return DefectCache.getInstance().getMisses();
+    }
+
+    @Override
+    public long getDefectCacheRevalidations() {
+        return DefectCache.getInstance().getRevalidations();
+    }
+
+    @Override
+    public double getDefectCacheHitRatio() {
+        return DefectCache.getInstance().getHitRatio();
+    }
+
+    @Override
+    public int getDefectCacheSize() {
+        return DefectCache.getInstance().size();
+    }
+
+    /**
+     * @return the number of requests served from a defect replica instead of HP ALM
+     */
+    @Override
+    public long getReplicaHits() {
+        return replicaHits.get();
+    }
+
+    /**
+     * @return the number of requests not sent because too many requests to HP ALM were in flight
+     */
+    @Override
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    /**
+     * @return the number of searches of all projects that left out projects which failed
+     */
+    @Override
+    public long getPartialSearches() {
+        return partialSearches.get();
+    }
+
+    @Override
+    public long getCoalescedDefectQueries() {
+        return ALMClient.getCoalescedDefectQueries();
+    }
+
+    @Override
+    public long getCoalescedProjectQueries() {
+        return ALMClient.getCoalescedProjectQueries();
+    }
+
+    @Override
+    public int getActiveAsyncRequests() {
+        return ALMExecutor.getInstance().getActiveCount();
+    }
+
+    @Override
+    public int getQueuedAsyncRequests() {
+        return ALMExecutor.getInstance().getQueueSize();
+    }
+
+    @Override
+    public void reset() {
+        logins.set(0);
+        bytesReceived.set(0);
+        replicaHits.set(0);
+        rejectedRequests.set(0);
+        partialSearches.set(0);
+        for (OperationMetrics operation : operations.values()) {
+            operation.reset();
+        }
+    }
+
+    private static void register(String properties, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":" + properties);
+            // another class loader, e.g. a redeployed provider, may have registered it already
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Unable to register HP ALM metrics MBean " + properties + ": " + e.getMessage());
+        }
+    }
+
+}
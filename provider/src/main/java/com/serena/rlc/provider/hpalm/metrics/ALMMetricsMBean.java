@@ -0,0 +1,50 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.metrics;
+
+/**
+ * JMX view of the provider wide HP ALM metrics
+ *
+ * @author klee
+ */
+
+public interface ALMMetricsMBean {
+
+    long getLogins();
+
+    long getBytesReceived();
+
+    long getDefectCacheHits();
+
+    long getDefectCacheMisses();
+
+    long getDefectCacheRevalidations();
+
+    double getDefectCacheHitRatio();
+
+    int getDefectCacheSize();
+
+    long getReplicaHits();
+
+    long getRejectedRequests();
+
+    long getPartialSearches();
+
+    long getCoalescedDefectQueries();
+
+    long getCoalescedProjectQueries();
+
+    int getActiveAsyncRequests();
+
+    int getQueuedAsyncRequests();
+
+    void reset();
+
+}
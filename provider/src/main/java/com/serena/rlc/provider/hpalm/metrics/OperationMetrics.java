@@ -0,0 +1,88 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call count, error count and latency histogram of an operation, e.g. an HP ALM endpoint
+ *
+ * @author klee
+ */
+
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a completed call
+     *
+     * @param startNanos  the {@link System#nanoTime()} the call started at
+     * @param success  false if the call failed
+     */
+    public void record(long startNanos, boolean success) {
+        latencies.record(System.nanoTime() - startNanos);
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    @Override
+    public long getCalls() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latencies.getMeanMillis();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latencies.getPercentileMillis(0.50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latencies.getPercentileMillis(0.90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latencies.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies.getMaxMillis();
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        errors.set(0);
+    }
+
+}
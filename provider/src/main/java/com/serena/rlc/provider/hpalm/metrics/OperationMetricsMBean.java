@@ -0,0 +1,36 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.metrics;
+
+/**
+ * JMX view of the metrics of an operation, latencies are in milliseconds
+ *
+ * @author klee
+ */
+
+public interface OperationMetricsMBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm;
+
+import com.serena.rlc.provider.data.model.IProviderInfo;
+import com.serena.rlc.provider.domain.Field;
+import com.serena.rlc.provider.domain.ProviderInfoResult;
+import com.serena.rlc.provider.exceptions.ProviderException;
+import com.serena.rlc.provider.hpalm.mock.MockALMServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the provider against the mock HP ALM server, end to end over HTTP.
+ *
+ * @author klee
+ */
+
+public class ALMRequestProviderTest {
+
+    private static final int DEFECTS = 25;
+    // sessions are shared per server and user, so every test logs in as a user of its own
+    private static final AtomicInteger users = new AtomicInteger();
+
+    private MockALMServer server;
+    private String user;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockALMServer(2, DEFECTS);
+        server.setCompression(true);
+        server.start(0, 4);
+        user = "user" + users.incrementAndGet();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void testSessionIsReusedAndRenewedWhenRejected() throws Exception {
+        findRequests(createProvider(), 0, 10);
+        findRequests(createProvider(), 0, 10);
+        assertEquals("Providers of the same user share a session", 1, server.getLogins());
+
+        server.expireSessions();
+        ProviderInfoResult result = findRequests(createProvider(), 0, 10);
+        assertEquals("The rejected session is logged in again", 2, server.getLogins());
+        assertEquals(10, result.getResults().length);
+        assertEquals(DEFECTS, result.getTotal());
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+        ALMRequestProvider provider = createProvider();
+
+        ProviderInfoResult page = findRequests(provider, 10, 10);
+        assertEquals(DEFECTS, page.getTotal());
+        assertEquals(10, page.getStartIndex());
+        assertIds(page, 11, 10);
+
+        ProviderInfoResult lastPage = findRequests(provider, 20, 10);
+        assertEquals(DEFECTS, lastPage.getTotal());
+        assertIds(lastPage, 21, DEFECTS - 20);
+    }
+
+    @Test
+    public void testGatewayErrorIsRetried() throws Exception {
+        ALMRequestProvider provider = createProvider();
+        findRequests(provider, 0, 10);
+
+        server.failNext(1, 503);
+        ProviderInfoResult result = findRequests(provider, 0, 10);
+        assertEquals(1, server.getErrors());
+        assertIds(result, 1, 10);
+    }
+
+    @Test
+    public void testServerErrorFailsWhenRetriesAreExhausted() throws Exception {
+        ALMRequestProvider provider = createProvider();
+        provider.setMaxRetries("2");
+        findRequests(provider, 0, 10);
+
+        server.failNext(3, 503);
+        try {
+            findRequests(provider, 0, 10);
+            fail("Expected the search to fail after the last retry");
+        } catch (ProviderException e) {
+            // expected
+        }
+        assertEquals(3, server.getErrors());
+
+        // the server has recovered
+        assertIds(findRequests(provider, 0, 10), 1, 10);
+    }
+
+    private ALMRequestProvider createProvider() {
+        ALMRequestProvider provider = new ALMRequestProvider();
+        provider.setHpalmUrl(server.getUrl());
+        provider.setHpalmDomain(MockALMServer.DOMAIN);
+        provider.setServiceUser(user);
+        provider.setServicePassword("password");
+        provider.setUseXsrf("true");
+        provider.setRetryBackoff("1");
+        return provider;
+    }
+
+    private ProviderInfoResult findRequests(ALMRequestProvider provider, int startIndex, int resultCount) throws ProviderException {
+        List<Field> properties = new ArrayList<>();
+        Field project = new Field("project", "project");
+        project.setValue(server.getProjectIds().get(0));
+        properties.add(project);
+        return provider.findRequests(properties, (long) startIndex, (long) resultCount);
+    }
+
+    private void assertIds(ProviderInfoResult result, int firstId, int count) {
+        IProviderInfo[] requests = result.getResults();
+        assertEquals(count, requests.length);
+        for (int i = 0; i < count; i++) {
+            assertEquals(server.getProjectIds().get(0) + ":" + (firstId + i), requests[i].getId());
+        }
+    }
+
+}
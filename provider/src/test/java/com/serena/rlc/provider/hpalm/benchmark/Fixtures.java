@@ -0,0 +1,186 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Generates HP ALM REST payloads shaped like those of a real server: defect entities with
+ * all mapped fields, rich text (HTML) descriptions and the list envelope with "TotalResults".
+ * The same seed always produces the same payload.
+ *
+ * @author klee
+ */
+
+public class Fixtures {
+
+    public static final String PROJECT = "Demo";
+
+    private static final String[] STATUSES = {"New", "Open", "Fixed", "Closed", "Rejected", "Reopen"};
+    private static final String[] PRIORITIES = {"1-Low", "2-Medium", "3-High", "4-Very High", "5-Urgent"};
+    private static final String[] SEVERITIES = {"1-Low", "2-Medium", "3-High", "4-Very High", "5-Urgent"};
+    private static final String[] USERS = {"alex_alm", "jenny_alm", "admin", "peter_alm", "maria_alm", "sa"};
+    private static final String[] WORDS = {"login", "page", "fails", "when", "user", "release", "timeout",
+            "report", "button", "missing", "export", "invalid", "date", "format", "crash", "dashboard",
+            "search", "slow", "permission", "denied", "upload", "attachment", "error", "message"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * @return a page of defects as returned by the defects collection resource
+     */
+    public static String defects(int count) {
+        return defects(1, count, count);
+    }
+
+    /**
+     * @param firstId  the id of the first defect
+     * @param count  the number of defects in the page
+     * @param totalResults  the total number of matching defects
+     * @return a page of defects as returned by the defects collection resource
+     */
+    public static String defects(int firstId, int count, int totalResults) {
+        return defects(firstId, count, totalResults, 0);
+    }
+
+    /**
+     * @param firstId  the id of the first defect
+     * @param count  the number of defects in the page
+     * @param totalResults  the total number of matching defects
+     * @param customFields  the number of custom "user-NN" fields of each defect
+     * @return a page of defects as returned by the defects collection resource
+     */
+    @SuppressWarnings("unchecked")
+    public static String defects(int firstId, int count, int totalResults, int customFields) {
+        JSONArray entities = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            entities.add(defectEntity(firstId + i, customFields));
+        }
+        JSONObject page = new JSONObject();
+        page.put("entities", entities);
+        page.put("TotalResults", totalResults);
+        return page.toJSONString();
+    }
+
+    /**
+     * @return a single defect as returned by the defect entity resource
+     */
+    public static String defect(int id) {
+        return defectEntity(id).toJSONString();
+    }
+
+    /**
+     * @return a list of projects as returned by the projects resource
+     */
+    @SuppressWarnings("unchecked")
+    public static String projects(int count) {
+        JSONArray projectList = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject project = new JSONObject();
+            project.put("Name", (i == 0 ? PROJECT : "Project" + i));
+            projectList.add(project);
+        }
+        JSONObject project = new JSONObject();
+        project.put("Project", projectList);
+        JSONObject projects = new JSONObject();
+        projects.put("Projects", project);
+        return projects.toJSONString();
+    }
+
+    public static JSONObject defectEntity(int id) {
+        return defectEntity(id, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static JSONObject defectEntity(int id, int customFields) {
+        Random random = new Random(id);
+        JSONArray fields = new JSONArray();
+        fields.add(field("id", Integer.toString(id)));
+        fields.add(field("name", sentence(random, 4 + random.nextInt(6))));
+        fields.add(field("status", pick(random, STATUSES)));
+        fields.add(field("priority", pick(random, PRIORITIES)));
+        fields.add(field("severity", pick(random, SEVERITIES)));
+        fields.add(field("description", description(random)));
+        fields.add(field("project", PROJECT));
+        fields.add(field("detected-by", pick(random, USERS)));
+        fields.add(field("creation-time", String.format("2016-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28))));
+        fields.add(field("owner", pick(random, USERS)));
+        fields.add(field("last-modified", String.format("2016-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12),
+                1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60))));
+        fields.add(field("target-rcyc", ""));
+        for (int i = 1; i <= customFields; i++) {
+            fields.add(field(customField(i), (random.nextInt(3) == 0 ? "" : pick(random, WORDS))));
+        }
+
+        JSONObject entity = new JSONObject();
+        entity.put("Fields", fields);
+        entity.put("Type", "defect");
+        entity.put("children-count", 0);
+        return entity;
+    }
+
+    /**
+     * @return the name of a custom field, e.g. user-01
+     */
+    public static String customField(int index) {
+        return String.format("user-%02d", index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject field(String name, String value) {
+        // empty fields have no values
+        JSONArray values = new JSONArray();
+        if (!value.isEmpty()) {
+            JSONObject fieldValue = new JSONObject();
+            fieldValue.put("value", value);
+            values.add(fieldValue);
+        }
+        JSONObject field = new JSONObject();
+        field.put("Name", name);
+        field.put("values", values);
+        return field;
+    }
+
+    /**
+     * HP ALM memo fields are stored as HTML
+     */
+    private static String description(Random random) {
+        StringBuilder html = new StringBuilder("<html><body>");
+        int paragraphs = 1 + random.nextInt(4);
+        for (int i = 0; i < paragraphs; i++) {
+            html.append("<div align=\"left\"><font face=\"Arial\"><span style=\"font-size:8pt\">")
+                    .append(sentence(random, 10 + random.nextInt(30)))
+                    .append("</span></font></div>");
+        }
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(pick(random, WORDS));
+        }
+        sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+        return sentence.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+}
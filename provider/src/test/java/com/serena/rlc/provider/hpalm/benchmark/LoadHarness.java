@@ -0,0 +1,253 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.benchmark;
+
+import com.serena.rlc.provider.domain.Field;
+import com.serena.rlc.provider.hpalm.ALMRequestProvider;
+import com.serena.rlc.provider.hpalm.mock.MockALMServer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives {@link ALMRequestProvider} against a {@link MockALMServer} from many concurrent threads
+ * and reports throughput and latency percentiles. Like the RLC server, a new provider instance
+ * is configured for every operation.
+ *
+ * Options are given as name=value, e.g.
+ * <pre>
+ *   java -cp target/benchmarks.jar com.serena.rlc.provider.hpalm.benchmark.LoadHarness threads=64 duration=30 latency=20
+ * </pre>
+ *
+ * @author klee
+ */
+
+public class LoadHarness {
+
+    private static final String[] STATUSES = {"New", "Open", "Fixed", "Closed", "Rejected", "Reopen"};
+    private static final String[] TITLES = {"login", "timeout", "export", "report", "dashboard"};
+
+    private final Map<String, String> options;
+    private final MockALMServer server;
+    private final int threads;
+    private final long duration;
+    private final long warmup;
+    private final int defects;
+    private final int findPercent;
+    private final int getPercent;
+    private final int pageSize;
+
+    private final AtomicLong errors = new AtomicLong();
+    private final List<long[]> threadLatencies = Collections.synchronizedList(new ArrayList<long[]>());
+
+    public LoadHarness(Map<String, String> options, MockALMServer server) {
+        this.options = options;
+        this.server = server;
+        this.threads = getInt("threads", 32);
+        this.duration = getInt("duration", 30) * 1000L;
+        this.warmup = getInt("warmup", 5) * 1000L;
+        this.defects = getInt("defects", 5000);
+        this.findPercent = getInt("find", 60);
+        this.getPercent = getInt("get", 30);
+        this.pageSize = getInt("pageSize", 50);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                System.err.println("Ignoring option " + arg + ", expected name=value");
+                continue;
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        MockALMServer server = new MockALMServer(getInt(options, "projects", 5), getInt(options, "defects", 5000));
+        server.setLatency(getInt(options, "latency", 20), getInt(options, "jitter", 10));
+        server.setErrorRate(Double.parseDouble(getOption(options, "errorRate", "0")));
+        server.setSessionTimeout(getInt(options, "sessionTimeout", 0));
+        server.setBandwidth(getInt(options, "bandwidth", 0));
+        server.start(0, getInt(options, "serverThreads", 64));
+        try {
+            new LoadHarness(options, server).run();
+        } finally {
+            server.stop();
+        }
+        System.exit(0);
+    }
+
+    public void run() throws InterruptedException {
+        System.out.println("Load test against " + server.getUrl() + ": " + threads + " threads, "
+                + (warmup / 1000) + "s warmup, " + (duration / 1000) + "s measurement, options " + options);
+
+        final long start = System.currentTimeMillis();
+        final long measureFrom = start + warmup;
+        final long end = measureFrom + duration;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runClient(new Random(seed), measureFrom, end);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Thread.sleep(Math.max(0, measureFrom - System.currentTimeMillis()));
+        long requestsAtStart = server.getRequests();
+        long loginsAtStart = server.getLogins();
+        long bytesAtStart = server.getBytesSent();
+        done.await();
+        long elapsed = Math.max(1, System.currentTimeMillis() - measureFrom);
+
+        report(elapsed, server.getRequests() - requestsAtStart, server.getLogins() - loginsAtStart,
+                server.getBytesSent() - bytesAtStart);
+    }
+
+    private void runClient(Random random, long measureFrom, long end) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long now;
+        while ((now = System.currentTimeMillis()) < end) {
+            long started = System.nanoTime();
+            boolean measured = (now >= measureFrom);
+            try {
+                runOperation(random);
+            } catch (Exception e) {
+                if (measured) {
+                    errors.incrementAndGet();
+                }
+            }
+            if (measured) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - started;
+            }
+        }
+        threadLatencies.add(Arrays.copyOf(latencies, count));
+    }
+
+    private void runOperation(Random random) throws Exception {
+        ALMRequestProvider provider = createProvider();
+        List<String> projectIds = server.getProjectIds();
+        String projectId = projectIds.get(random.nextInt(projectIds.size()));
+        int operation = random.nextInt(100);
+        if (operation < findPercent) {
+            List<Field> properties = new ArrayList<>();
+            properties.add(field("project", projectId));
+            int statuses = random.nextInt(3);
+            for (int i = 0; i < statuses; i++) {
+                properties.add(field("statusFilters", STATUSES[random.nextInt(STATUSES.length)]));
+            }
+            if (random.nextInt(4) == 0) {
+                properties.add(field("titleFilter", TITLES[random.nextInt(TITLES.length)]));
+            }
+            provider.findRequests(properties, 0L, (long) pageSize);
+        } else if (operation < findPercent + getPercent) {
+            provider.getRequest(field("requestId", projectId + ":" + (1 + random.nextInt(defects))));
+        } else {
+            provider.getFieldValues("project", new ArrayList<Field>());
+        }
+    }
+
+    private ALMRequestProvider createProvider() {
+        ALMRequestProvider provider = new ALMRequestProvider();
+        provider.setHpalmUrl(server.getUrl());
+        provider.setHpalmDomain(MockALMServer.DOMAIN);
+        provider.setServiceUser("admin");
+        provider.setServicePassword("admin");
+        provider.setUseXsrf("true");
+        provider.setRequestResultLimit(Integer.toString(pageSize));
+        provider.setMaxConnectionsPerRoute(getOption("maxConnectionsPerRoute", null));
+        provider.setMaxConnectionsTotal(getOption("maxConnectionsTotal", null));
+        provider.setDefectCacheTtl(getOption("defectCacheTtl", null));
+        provider.setDefectCacheSize(getOption("defectCacheSize", null));
+        provider.setProjectRefreshInterval(getOption("projectRefreshInterval", null));
+        provider.setReplicaSyncInterval(getOption("replicaSyncInterval", null));
+        provider.setAsyncThreads(getOption("asyncThreads", null));
+        provider.setMaxConcurrentRequests(getOption("maxConcurrentRequests", null));
+        provider.setMaxRequestWait(getOption("maxRequestWait", null));
+        provider.setCompression(getOption("compression", null));
+        return provider;
+    }
+
+    private void report(long elapsed, long serverRequests, long logins, long bytesSent) {
+        int total = 0;
+        for (long[] latencies : threadLatencies) {
+            total += latencies.length;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (long[] latencies : threadLatencies) {
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        Arrays.sort(all);
+
+        System.out.println();
+        System.out.printf("Operations:       %d (%d errors)%n", total, errors.get());
+        System.out.printf("Throughput:       %.1f ops/s%n", total * 1000.0 / elapsed);
+        System.out.printf("Latency p50:      %.2f ms%n", percentile(all, 0.50));
+        System.out.printf("Latency p90:      %.2f ms%n", percentile(all, 0.90));
+        System.out.printf("Latency p99:      %.2f ms%n", percentile(all, 0.99));
+        System.out.printf("Latency max:      %.2f ms%n", (all.length == 0 ? 0.0 : all[all.length - 1] / 1000000.0));
+        System.out.printf("Server requests:  %d (%.2f per operation)%n", serverRequests, (total == 0 ? 0.0 : (double) serverRequests / total));
+        System.out.printf("Server logins:    %d%n", logins);
+        System.out.printf("Bytes received:   %d (%.1f KB per request)%n", bytesSent, (serverRequests == 0 ? 0.0 : bytesSent / 1024.0 / serverRequests));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000000.0;
+    }
+
+    private static Field field(String name, String value) {
+        Field field = new Field(name, name);
+        field.setValue(value);
+        return field;
+    }
+
+    private String getOption(String name, String defaultValue) {
+        return getOption(options, name, defaultValue);
+    }
+
+    private int getInt(String name, int defaultValue) {
+        return getInt(options, name, defaultValue);
+    }
+
+    private static String getOption(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return (value == null ? defaultValue : value);
+    }
+
+    private static int getInt(Map<String, String> options, String name, int defaultValue) {
+        return Integer.parseInt(getOption(options, name, Integer.toString(defaultValue)));
+    }
+
+}
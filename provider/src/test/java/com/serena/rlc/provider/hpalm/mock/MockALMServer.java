@@ -0,0 +1,486 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.mock;
+
+import com.serena.rlc.provider.hpalm.benchmark.Fixtures;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Self-contained stand-in for the HP ALM REST API, serving the resources used by the provider
+ * from generated defects: authentication, site sessions, projects, and defect queries with
+ * paging. Latency, errors and session expiry can be injected, at random for load tests or
+ * on demand for functional tests.
+ *
+ * Supported defect query conditions are those the provider sends: name[*text*],
+ * status[a or b], id[a or b] and last-modified[>="time"].
+ *
+ * @author klee
+ */
+
+public class MockALMServer {
+
+    public static final String DOMAIN = "DEFAULT";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String SSO_COOKIE = "LWSSO_COOKIE_KEY";
+    private static final String SESSION_COOKIE = "QCSession";
+    private static final String XSRF_COOKIE = "XSRF-TOKEN";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final Map<String, List<MockDefect>> projects = new HashMap<>();
+    private final ConcurrentMap<String, Long> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile int latency;
+    private volatile int latencyJitter;
+    private volatile double errorRate;
+    private volatile long sessionTimeout;
+    private volatile boolean compression = true;
+    private volatile int bandwidth;
+    private volatile int failureStatus;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param projectCount  the number of projects
+     * @param defectsPerProject  the number of defects in each project
+     */
+    public MockALMServer(int projectCount, int defectsPerProject) {
+        for (int p = 0; p < projectCount; p++) {
+            String projectId = (p == 0 ? Fixtures.PROJECT : "Project" + p);
+            List<MockDefect> defects = new ArrayList<>(defectsPerProject);
+            for (int id = 1; id <= defectsPerProject; id++) {
+                defects.add(new MockDefect(Fixtures.defectEntity(id)));
+            }
+            projects.put(projectId, defects);
+        }
+    }
+
+    /**
+     * Start the server
+     *
+     * @param port  the port to listen on, or 0 for any free port
+     * @param threads  the number of request threads
+     */
+    public void start(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1000);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    dispatch(exchange);
+                } catch (RuntimeException e) {
+                    send(exchange, 500, e.toString());
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the base URL of the server, e.g. http://localhost:8080
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public List<String> getProjectIds() {
+        List<String> projectIds = new ArrayList<>(projects.keySet());
+        Collections.sort(projectIds);
+        return projectIds;
+    }
+
+    /**
+     * Delay every response
+     *
+     * @param latency  the minimum delay in milliseconds
+     * @param latencyJitter  the maximum random delay added in milliseconds
+     */
+    public void setLatency(int latency, int latencyJitter) {
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+    }
+
+    /**
+     * @param errorRate  the fraction of REST requests answered with 500 Internal Server Error
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param sessionTimeout  the number of milliseconds after which a session is rejected with
+     *                        401 Unauthorized, or 0 for sessions that do not expire
+     */
+    public void setSessionTimeout(long sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * @param compression  whether to gzip responses when the client accepts it
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @param bandwidth  the simulated bandwidth of the link in KB per second, or 0 for no limit
+     */
+    public void setBandwidth(int bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    /**
+     * Answer the next REST requests of logged in sessions with an error
+     *
+     * @param count  the number of requests to fail
+     * @param status  the status to answer them with, e.g. 503 Service Unavailable
+     */
+    public void failNext(int count, int status) {
+        this.failureStatus = status;
+        failures.set(count);
+    }
+
+    /**
+     * Drop all sessions, as a server restart would, so that they are rejected with 401 Unauthorized
+     */
+    public void expireSessions() {
+        sessions.clear();
+    }
+
+    /**
+     * @return the number of response body bytes sent, after compression
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getLogins() {
+        return logins.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        drain(exchange.getRequestBody());
+        delay();
+
+        String path = exchange.getRequestURI().getRawPath();
+        if (path.endsWith("/authentication-point/authenticate")) {
+            authenticate(exchange);
+            return;
+        }
+        if (path.endsWith("/rest/site-session")) {
+            createSiteSession(exchange);
+            return;
+        }
+        if (!isAuthenticated(exchange)) {
+            send(exchange, 401, "Authentication failed. Browser based integrations - to login append '?login-form-required=y' to the url you tried to access.");
+            return;
+        }
+        if (path.endsWith("/rest/is-authenticated")) {
+            send(exchange, 200, "");
+            return;
+        }
+        if (failures.get() > 0 && failures.getAndDecrement() > 0) {
+            errors.incrementAndGet();
+            send(exchange, failureStatus, "");
+            return;
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            send(exchange, 500, "{\"Id\":\"qccore.general-error\",\"Title\":\"Injected error\"}");
+            return;
+        }
+
+        String prefix = "/qcbin/rest/domains/" + DOMAIN + "/projects";
+        if (!path.startsWith(prefix)) {
+            send(exchange, 404, "");
+            return;
+        }
+        String[] segments = path.substring(prefix.length()).split("/");
+        // "", project, "defects", id
+        if (segments.length <= 1) {
+            sendProjects(exchange);
+        } else if (segments.length == 3 && "defects".equals(segments[2])) {
+            sendDefects(exchange, decode(segments[1]));
+        } else if (segments.length == 4 && "defects".equals(segments[2])) {
+            sendDefect(exchange, decode(segments[1]), decode(segments[3]));
+        } else {
+            send(exchange, 404, "");
+        }
+    }
+
+    private void authenticate(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Basic ")) {
+            send(exchange, 401, "");
+            return;
+        }
+        logins.incrementAndGet();
+        String sso = UUID.randomUUID().toString();
+        sessions.put(sso, System.currentTimeMillis());
+        exchange.getResponseHeaders().add("Set-Cookie", SSO_COOKIE + "=" + sso + "; Path=/; HTTPOnly");
+        send(exchange, 200, "");
+    }
+
+    private void createSiteSession(HttpExchange exchange) throws IOException {
+        if (getCookie(exchange, SSO_COOKIE) == null) {
+            send(exchange, 401, "");
+            return;
+        }
+        exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + UUID.randomUUID() + "; Path=/; HTTPOnly");
+        exchange.getResponseHeaders().add("Set-Cookie", XSRF_COOKIE + "=" + UUID.randomUUID() + "; Path=/");
+        send(exchange, 201, "");
+    }
+
+    private boolean isAuthenticated(HttpExchange exchange) {
+        String sso = getCookie(exchange, SSO_COOKIE);
+        Long created = (sso == null ? null : sessions.get(sso));
+        if (created == null) {
+            return false;
+        }
+        if (sessionTimeout > 0 && System.currentTimeMillis() - created > sessionTimeout) {
+            sessions.remove(sso);
+            return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendProjects(HttpExchange exchange) throws IOException {
+        JSONArray projectList = new JSONArray();
+        for (String projectId : getProjectIds()) {
+            JSONObject project = new JSONObject();
+            project.put("Name", projectId);
+            projectList.add(project);
+        }
+        JSONObject project = new JSONObject();
+        project.put("Project", projectList);
+        JSONObject result = new JSONObject();
+        result.put("Projects", project);
+        send(exchange, 200, result.toJSONString());
+    }
+
+    private void sendDefects(HttpExchange exchange, String projectId) throws IOException {
+        List<MockDefect> defects = projects.get(projectId);
+        if (defects == null) {
+            send(exchange, 404, "");
+            return;
+        }
+        Map<String, String> params = getParameters(exchange);
+        MockQuery query = MockQuery.parse(params.get("query"));
+        int pageSize = ("max".equals(params.get("page-size")) ? Integer.MAX_VALUE : parseInt(params.get("page-size"), DEFAULT_PAGE_SIZE));
+        int startIndex = Math.max(1, parseInt(params.get("start-index"), 1));
+
+        StringBuilder json = new StringBuilder(Math.min(pageSize, defects.size()) * 1500 + 64);
+        json.append("{\"entities\":[");
+        int total = 0;
+        int written = 0;
+        for (MockDefect defect : defects) {
+            if (!query.matches(defect)) {
+                continue;
+            }
+            total++;
+            if (total >= startIndex && written < pageSize) {
+                if (written++ > 0) {
+                    json.append(',');
+                }
+                json.append(defect.json);
+            }
+        }
+        json.append("],\"TotalResults\":").append(total).append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    private void sendDefect(HttpExchange exchange, String projectId, String defectId) throws IOException {
+        List<MockDefect> defects = projects.get(projectId);
+        int index = parseInt(defectId, 0) - 1;
+        if (defects == null || index < 0 || index >= defects.size()) {
+            send(exchange, 404, "{\"Id\":\"qccore.entity-not-found\",\"Title\":\"Entity not found\"}");
+            return;
+        }
+        send(exchange, 200, defects.get(index).json);
+    }
+
+    private void delay() {
+        int delay = latency + (latencyJitter > 0 ? ThreadLocalRandom.current().nextInt(latencyJitter + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(UTF8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (compression && bytes.length > 0 && acceptsGzip(exchange)) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(bytes);
+            gzip.close();
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        bytesSent.addAndGet(bytes.length);
+        transfer(bytes.length);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+        if (headers != null) {
+            for (String header : headers) {
+                if (header.toLowerCase().contains("gzip")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hold the response for the time it would take to send over the simulated link
+     */
+    private void transfer(int length) {
+        int kbPerSecond = bandwidth;
+        if (kbPerSecond > 0 && length > 0) {
+            try {
+                Thread.sleep(length * 1000L / (kbPerSecond * 1024L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (in.read(buffer) >= 0) {
+            // discard the request body
+        }
+    }
+
+    private static String getCookie(HttpExchange exchange, String name) {
+        List<String> headers = exchange.getRequestHeaders().get("Cookie");
+        if (headers == null) {
+            return null;
+        }
+        for (String header : headers) {
+            for (String cookie : header.split(";")) {
+                cookie = cookie.trim();
+                if (cookie.startsWith(name + "=")) {
+                    return cookie.substring(name.length() + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> getParameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int separator = param.indexOf('=');
+                if (separator > 0) {
+                    params.put(decode(param.substring(0, separator)), decode(param.substring(separator + 1)));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0 ? Integer.parseInt(args[0]) : 8080);
+        int defects = (args.length > 1 ? Integer.parseInt(args[1]) : 5000);
+        MockALMServer server = new MockALMServer(5, defects);
+        server.start(port, 32);
+        System.out.println("Mock HP ALM server listening on " + server.getUrl() + ", domain " + DOMAIN
+                + ", projects " + server.getProjectIds());
+    }
+
+}
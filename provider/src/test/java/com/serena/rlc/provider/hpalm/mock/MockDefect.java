@@ -0,0 +1,48 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.mock;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A defect served by the mock server: its field values for filtering and its serialized entity
+ *
+ * @author klee
+ */
+
+class MockDefect {
+
+    final Map<String, String> fields = new HashMap<>();
+    final String json;
+
+    MockDefect(JSONObject entity) {
+        for (Object field : (JSONArray) entity.get("Fields")) {
+            JSONObject fieldObject = (JSONObject) field;
+            JSONArray values = (JSONArray) fieldObject.get("values");
+            String value = "";
+            if (!values.isEmpty()) {
+                Object first = ((JSONObject) values.get(0)).get("value");
+                value = (first == null ? "" : first.toString());
+            }
+            fields.put((String) fieldObject.get("Name"), value);
+        }
+        this.json = entity.toJSONString();
+    }
+
+    String get(String field) {
+        String value = fields.get(field);
+        return (value == null ? "" : value);
+    }
+
+}
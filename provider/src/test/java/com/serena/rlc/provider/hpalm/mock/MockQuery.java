@@ -0,0 +1,129 @@
+/*
+ *
+ * Copyright (c) 2016 SERENA Software, Inc. All Rights Reserved.
+ *
+ * This software is proprietary information of SERENA Software, Inc.
+ * Use is subject to license terms.
+ *
+ */
+
+package com.serena.rlc.provider.hpalm.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates the subset of the HP ALM query language sent by the provider, e.g.
+ * {name[*login*]; status[New or Open]}. Conditions are separated by ";" and all have to match.
+ * Quoted values may contain spaces and query syntax characters, escaped with a backslash.
+ *
+ * @author klee
+ */
+
+class MockQuery {
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    static MockQuery parse(String query) {
+        MockQuery result = new MockQuery();
+        if (query == null) {
+            return result;
+        }
+        String text = query.trim();
+        if (text.startsWith("{") && text.endsWith("}")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        for (String condition : split(text, ";")) {
+            condition = condition.trim();
+            int open = condition.indexOf('[');
+            if (open > 0 && condition.endsWith("]")) {
+                result.conditions.add(new Condition(condition.substring(0, open).trim(),
+                        condition.substring(open + 1, condition.length() - 1).trim()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split text on a separator that is not inside a quoted value
+     */
+    private static List<String> split(String text, String separator) {
+        List<String> parts = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted && c == '\\') {
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && text.startsWith(separator, i)) {
+                parts.add(text.substring(start, i));
+                start = i + separator.length();
+                i = start - 1;
+            }
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    boolean matches(MockDefect defect) {
+        for (Condition condition : conditions) {
+            if (!condition.matches(defect.get(condition.field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Condition {
+        final String field;
+        final String expression;
+
+        Condition(String field, String expression) {
+            this.field = field;
+            this.expression = expression;
+        }
+
+        boolean matches(String value) {
+            if (expression.startsWith(">=")) {
+                return value.compareTo(unquote(expression.substring(2))) >= 0;
+            }
+            for (String alternative : split(expression, " or ")) {
+                if (matchesPattern(value, unquote(alternative.trim()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean matchesPattern(String value, String pattern) {
+            String lowerValue = value.toLowerCase();
+            String lowerPattern = pattern.toLowerCase();
+            if (lowerPattern.length() > 1 && lowerPattern.startsWith("*") && lowerPattern.endsWith("*")) {
+                return lowerValue.contains(lowerPattern.substring(1, lowerPattern.length() - 1));
+            }
+            if (lowerPattern.endsWith("*")) {
+                return lowerValue.startsWith(lowerPattern.substring(0, lowerPattern.length() - 1));
+            }
+            return lowerValue.equals(lowerPattern);
+        }
+
+        private static String unquote(String text) {
+            String result = text.trim();
+            if (result.length() > 1 && result.startsWith("\"") && result.endsWith("\"")) {
+                StringBuilder unquoted = new StringBuilder(result.length());
+                for (int i = 1; i < result.length() - 1; i++) {
+                    char c = result.charAt(i);
+                    if (c == '\\' && i < result.length() - 2) {
+                        c = result.charAt(++i);
+                    }
+                    unquoted.append(c);
+                }
+                result = unquoted.toString();
+            }
+            return result;
+        }
+    }
+
+}